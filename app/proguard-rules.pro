@@ -18,4 +18,16 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Firestore maps the models by reflection, using the no-argument constructors, fields, getters and setters.
+# Renaming or removing them would silently break reading and writing of documents.
+-keepattributes Signature,*Annotation*
+-keep class de.db.shoppinglist.model.ShoppingList { *; }
+-keep class de.db.shoppinglist.model.ShoppingEntry { *; }
+-keep class de.db.shoppinglist.model.EntryHistoryElement { *; }
+-keep class de.db.shoppinglist.model.UserInfo { *; }
+
+# Keep the line numbers, so that stack traces of the release build can be retraced.
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
@@ -1,5 +1,6 @@
 package de.db.shoppinglist.adapter;
 
+import android.content.Context;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -17,6 +18,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import de.db.shoppinglist.R;
+import de.db.shoppinglist.glide.EntryImageRequests;
+import de.db.shoppinglist.glide.PreviewPreloadModelProvider;
 import de.db.shoppinglist.model.EntryHistoryElement;
 
 /**
@@ -24,7 +27,7 @@ import de.db.shoppinglist.model.EntryHistoryElement;
  * This recyclerview is filterable, so that, combined with a searchview, user can filter the
  * displayed results.
  */
-public class SearchEntryRecyclerViewAdapter extends RecyclerView.Adapter<SearchEntryRecyclerViewAdapter.ViewHolder> implements Filterable {
+public class SearchEntryRecyclerViewAdapter extends RecyclerView.Adapter<SearchEntryRecyclerViewAdapter.ViewHolder> implements Filterable, PreviewPreloadModelProvider.PreviewSource {
 
     private List<EntryHistoryElement> entries;
     private List<EntryHistoryElement> allEntries;
@@ -64,16 +67,30 @@ public class SearchEntryRecyclerViewAdapter extends RecyclerView.Adapter<SearchE
         holder.nameOfProduct.setText(entries.get(position).getName());
         holder.unitOfQuantity.setText(entries.get(position).getUnitOfQuantity());
         holder.details.setText(entries.get(position).getDetails());
-        if (entries.get(position).getImageURI() != null) {
-            Glide.with(holder.itemView.getContext())
-                    .load(entries.get(position).getImageURI())
-                    .skipMemoryCache(false)
+        String previewURI = getPreviewURI(position);
+        if (previewURI != null) {
+            Context context = holder.itemView.getContext();
+            int size = EntryImageRequests.getPreviewSize(context);
+            EntryImageRequests.preview(context, Glide.with(context), previewURI, size)
+                    .placeholder(EntryImageRequests.getPlaceholder(context, entries.get(position).getImagePlaceholder()))
                     .into(holder.imageView);
         } else {
             Glide.with(holder.itemView.getContext()).clear(holder.imageView);
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPreviewURI(int position) {
+        EntryHistoryElement historyEntry = entries.get(position);
+        if (historyEntry.getImageURI() == null) {
+            return null;
+        }
+        return EntryImageRequests.getPreviewURI(historyEntry.getImageURI(), historyEntry.getThumbnailURI());
+    }
+
     @Override
     public int getItemCount() {
         return entries.size();
@@ -17,14 +17,17 @@ import de.db.shoppinglist.R;
 import de.db.shoppinglist.adapter.viewholder.DefaultViewHolder;
 import de.db.shoppinglist.adapter.viewholder.JustNameViewHolder;
 import de.db.shoppinglist.adapter.viewholder.ViewHolderWithImage;
+import de.db.shoppinglist.glide.EntryImageRequests;
+import de.db.shoppinglist.glide.PreviewPreloadModelProvider;
+import de.db.shoppinglist.ifc.Pageable;
 import de.db.shoppinglist.model.ShoppingEntry;
 
 /**
  * Recyclerview, for displaying entries, within a shopping-list.
  * Since this recyclerview extends FirestoreRecyclerAdapter, it's updated immediatly after a
- * database change occurred.
+ * database change occurred. Large lists are loaded page by page, while scrolling.
  */
-public class ShoppingListRecViewAdapter extends FirestoreRecyclerAdapter<ShoppingEntry, ShoppingListRecViewAdapter.ViewHolder> implements Checkable<ShoppingEntry> {
+public class ShoppingListRecViewAdapter extends FirestoreRecyclerAdapter<ShoppingEntry, ShoppingListRecViewAdapter.ViewHolder> implements Checkable<ShoppingEntry>, PreviewPreloadModelProvider.PreviewSource {
 
 
     private static final int DEFAULT_VIEW_HOLDER = 0;
@@ -74,6 +77,27 @@ public class ShoppingListRecViewAdapter extends FirestoreRecyclerAdapter<Shoppin
         return item.getImageURI() != null && !item.getImageURI().isEmpty();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPreviewURI(int position) {
+        ShoppingEntry item = getItem(position);
+        if (!hasItemImage(item)) {
+            return null;
+        }
+        return EntryImageRequests.getPreviewURI(item.getImageURI(), item.getThumbnailURI());
+    }
+
+    /**
+     * Loads the next page of entries, if the entries are loaded page by page.
+     */
+    public void loadMore() {
+        if (getSnapshots() instanceof Pageable) {
+            ((Pageable) getSnapshots()).loadMore();
+        }
+    }
+
     @Override
     protected void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull ShoppingEntry shoppingEntry) {
         holder.onBindViewHolder(holder, position, shoppingEntry);
@@ -52,6 +52,12 @@ public class ShoppingListsRecViewAdapter extends FirestoreRecyclerAdapter<Shoppi
         navController.navigate(modifyImageDirection);
     }
 
+    @Override
+    public void onDataChanged() {
+        super.onDataChanged();
+        onListListener.onListsLoaded();
+    }
+
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -61,6 +67,11 @@ public class ShoppingListsRecViewAdapter extends FirestoreRecyclerAdapter<Shoppi
 
     public interface OnListListener {
         void onListClick(int position);
+
+        /**
+         * Is called after the lists were loaded or changed.
+         */
+        void onListsLoaded();
     }
 
     public static class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
@@ -1,6 +1,7 @@
 package de.db.shoppinglist.adapter.viewholder;
 
 
+import android.content.Context;
 import android.graphics.Paint;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -17,6 +18,7 @@ import com.bumptech.glide.Glide;
 import de.db.shoppinglist.R;
 import de.db.shoppinglist.adapter.ShoppingListRecViewAdapter;
 import de.db.shoppinglist.adapter.ShoppingListRecViewAdapter.OnEntryListener;
+import de.db.shoppinglist.glide.EntryImageRequests;
 import de.db.shoppinglist.model.ShoppingEntry;
 
 import static de.db.shoppinglist.adapter.viewholder.DefaultViewHolder.*;
@@ -92,9 +94,11 @@ public class ViewHolderWithImage extends ShoppingListRecViewAdapter.ViewHolder {
         unitOfQuantity.setText(shoppingEntry.getUnitOfQuantity());
         isDone.setChecked(shoppingEntry.isDone());
         details.setText(shoppingEntry.getDetails());
-        Glide.with(holder.itemView.getContext())
-                .load(shoppingEntry.getImageURI())
-                .skipMemoryCache(false)
+        String previewURI = EntryImageRequests.getPreviewURI(shoppingEntry.getImageURI(), shoppingEntry.getThumbnailURI());
+        Context context = holder.itemView.getContext();
+        int size = EntryImageRequests.getPreviewSize(context);
+        EntryImageRequests.preview(context, Glide.with(context), previewURI, size)
+                .placeholder(EntryImageRequests.getPlaceholder(context, shoppingEntry.getImagePlaceholder()))
                 .into(imageView);
     }
 
@@ -0,0 +1,177 @@
+package de.db.shoppinglist.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import de.db.shoppinglist.glide.EntryImageRequests;
+import de.db.shoppinglist.model.ImageReference;
+
+import static de.db.shoppinglist.database.FirebaseSource.ENTRIES_PAGE_SIZE;
+import static de.db.shoppinglist.database.FirebaseSource.HISTORY_PAGE_SIZE;
+import static de.db.shoppinglist.database.FirebaseSource.IMAGE_URI_PROPERTY;
+import static de.db.shoppinglist.database.FirebaseSource.THUMBNAIL_URI_PROPERTY;
+
+/**
+ * This class fills the caches of firestore and Glide in the background, after sign-in and on app start,
+ * so that the next screens are displayed from the caches instead of waiting for the network:
+ * the lists overview, the entries of the recently opened lists, the history and the thumbnails of the entries,
+ * which are visible without scrolling.
+ * The warm-up starts after a short delay and stops after its time or byte budget is used up,
+ * so that it doesn't compete with the first screen.
+ * Every step waits for the previous one, so it has to run on a background-thread.
+ */
+class CacheWarmer {
+
+    private static final String WARM_UP_TAG = "CacheWarmer";
+    private static final String PREFERENCES_NAME = "warm_up";
+    private static final String RECENT_LISTS_KEY = "recentLists_";
+    private static final String PATH_SEPARATOR = ",";
+    private static final int MAX_RECENT_LISTS = 3;
+    /** Number of entries, which are visible, before the list is scrolled.*/
+    private static final int VISIBLE_ENTRIES = 15;
+    private static final long START_DELAY_MILLIS = 2_000;
+    private static final long TIME_BUDGET_MILLIS = 15_000;
+    private static final long BYTE_BUDGET = 2L * 1024 * 1024;
+
+    private final FirebaseSource source;
+    private final Context context;
+    private final SharedPreferences preferences;
+
+    /**
+     * Creates a new warmer.
+     *
+     * @param source  The source, which defines the queries of the screens. Not null.
+     * @param context The application context.
+     */
+    CacheWarmer(FirebaseSource source, Context context) {
+        this.source = source;
+        this.context = context.getApplicationContext();
+        preferences = this.context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Remembers, that a list was opened, so that its entries are loaded during the next warm-up.
+     *
+     * @param listRef The opened list. Not null.
+     */
+    void rememberOpened(DocumentReference listRef) {
+        if (!UserReferences.isSignedIn()) {
+            return;
+        }
+        String key = RECENT_LISTS_KEY + UserReferences.current().getUserId();
+        synchronized (CacheWarmer.class) {
+            Set<String> recent = new LinkedHashSet<>();
+            recent.add(listRef.getPath());
+            recent.addAll(getRecentLists(key));
+            List<String> kept = new ArrayList<>(recent).subList(0, Math.min(MAX_RECENT_LISTS, recent.size()));
+            preferences.edit().putString(key, String.join(PATH_SEPARATOR, kept)).apply();
+        }
+    }
+
+    /**
+     * Fills the caches. Blocks, until the warm-up is finished or its budget is used up.
+     */
+    void warmUp() {
+        long deadline = SystemClock.elapsedRealtime() + START_DELAY_MILLIS + TIME_BUDGET_MILLIS;
+        SystemClock.sleep(START_DELAY_MILLIS);
+        if (!UserReferences.isSignedIn()) {
+            return;
+        }
+        try {
+            await(Tasks.whenAll(source.getListsRootCollectionRef().get(), source.getSharedListsQuery().get()), deadline);
+            List<String> previewURIs = new ArrayList<>();
+            for (String path : getRecentLists(RECENT_LISTS_KEY + UserReferences.current().getUserId())) {
+                warmUpEntries(FirebaseFirestore.getInstance().document(path), previewURIs, deadline);
+            }
+            await(source.getHistoryQuery().limit(HISTORY_PAGE_SIZE).get(), deadline);
+            downloadThumbnails(previewURIs, deadline);
+            Log.d(WARM_UP_TAG, "Success: Warmed up caches");
+        } catch (ExecutionException | TimeoutException e) {
+            Log.d(WARM_UP_TAG, "Stopped warm-up: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A recently opened list might have been deleted or left meanwhile, which doesn't stop the warm-up.
+     */
+    private void warmUpEntries(DocumentReference listRef, List<String> previewURIs, long deadline)
+            throws TimeoutException, InterruptedException {
+        try {
+            QuerySnapshot entries = await(source.getEntriesQuery(listRef).limit(ENTRIES_PAGE_SIZE).get(), deadline);
+            entries.getDocuments().stream().limit(VISIBLE_ENTRIES).forEach(doc -> addPreviewURI(doc, previewURIs));
+        } catch (ExecutionException e) {
+            Log.d(WARM_UP_TAG, "Could not load entries of " + listRef.getPath() + ": " + e.getMessage());
+        }
+    }
+
+    private List<String> getRecentLists(String key) {
+        String paths = preferences.getString(key, "");
+        return paths.isEmpty() ? new ArrayList<>() : Arrays.asList(paths.split(PATH_SEPARATOR));
+    }
+
+    private void addPreviewURI(DocumentSnapshot entry, List<String> previewURIs) {
+        String previewURI = EntryImageRequests.getPreviewURI(entry.getString(IMAGE_URI_PROPERTY), entry.getString(THUMBNAIL_URI_PROPERTY));
+        if (previewURI != null) {
+            previewURIs.add(previewURI);
+        }
+    }
+
+    /**
+     * Only the files are downloaded into the disk-cache of Glide. They are decoded, when they're displayed,
+     * so the warm-up doesn't fill the memory.
+     */
+    private void downloadThumbnails(List<String> previewURIs, long deadline) throws TimeoutException, InterruptedException {
+        long bytes = 0;
+        for (String previewURI : previewURIs) {
+            ImageReference image = ImageResolver.getInstance(context).resolve(previewURI);
+            if (image == null || !image.getDisplayUri().startsWith("http")) {
+                continue;
+            }
+            try {
+                File file = Glide.with(context).downloadOnly().load(image.getDisplayUri()).submit()
+                        .get(remaining(deadline), TimeUnit.MILLISECONDS);
+                bytes += file.length();
+            } catch (ExecutionException e) {
+                Log.d(WARM_UP_TAG, "Could not download " + previewURI + ": " + e.getMessage());
+            }
+            if (bytes >= BYTE_BUDGET) {
+                Log.d(WARM_UP_TAG, "Byte budget used up");
+                return;
+            }
+        }
+    }
+
+    private <T> T await(Task<T> task, long deadline) throws ExecutionException, TimeoutException, InterruptedException {
+        return Tasks.await(task, remaining(deadline), TimeUnit.MILLISECONDS);
+    }
+
+    private long remaining(long deadline) throws TimeoutException {
+        long remaining = deadline - SystemClock.elapsedRealtime();
+        if (remaining <= 0) {
+            throw new TimeoutException("Time budget used up");
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,45 @@
+package de.db.shoppinglist.database;
+
+import java.io.File;
+
+/**
+ * Result of an image compression, containing the files of the full-size image and its thumbnail,
+ * as well as the BlurHash of the image. Both files are located inside the cache-directory of the app.
+ */
+public class CompressedImage {
+
+    private final File image;
+    private final File thumbnail;
+    private final String placeholder;
+
+    public CompressedImage(File image, File thumbnail, String placeholder) {
+        this.image = image;
+        this.thumbnail = thumbnail;
+        this.placeholder = placeholder;
+    }
+
+    /**
+     * @return Returns the file of the full-size image. Not null.
+     */
+    public File getImage() {
+        return image;
+    }
+
+    /**
+     * @return Returns the file of the thumbnail. Null, if no thumbnail could be created.
+     */
+    public File getThumbnail() {
+        return thumbnail;
+    }
+
+    /**
+     * @return Returns the BlurHash of the image. Null, if it couldn't be computed.
+     */
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public boolean hasThumbnail() {
+        return thumbnail != null;
+    }
+}
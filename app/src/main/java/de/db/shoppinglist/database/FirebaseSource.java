@@ -5,46 +5,67 @@ import android.net.Uri;
 import android.util.Log;
 
 import com.firebase.ui.firestore.FirestoreRecyclerOptions;
+import com.firebase.ui.firestore.SnapshotParser;
 import com.google.android.gms.tasks.Task;
-import com.google.firebase.auth.FirebaseAuth;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreSettings;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
-import com.google.firebase.storage.UploadTask;
-
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Consumer;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
+import de.db.shoppinglist.R;
 import de.db.shoppinglist.model.EntryHistoryElement;
+import de.db.shoppinglist.model.ImageReference;
 import de.db.shoppinglist.model.ShoppingEntry;
 import de.db.shoppinglist.model.ShoppingList;
+import de.db.shoppinglist.utility.AppExecutors;
+import de.db.shoppinglist.utility.HashUtility;
 import de.db.shoppinglist.utility.ToastUtility;
 
 import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * This class is responsible for providing basic CRUD functionalities
  * for shopping-lists and shopping-entries. All functions use firebase.
  * Every user has his own directory, where he can manage his shopping-lists.
- * All functions automatically write inside the user-specific directory.
+ * All functions automatically write inside the user-specific directory, except for shared lists.
+ * A shared list exists only once, outside of any user directory, and lists the uids of its users as members.
+ * So a change of a shared list is written once, instead of once per user.
  */
 public class FirebaseSource implements Source {
     /** Firebase-Constant, representing the user-specific directory.*/
     public static final String USER_ROOT_KEY = "Users";
     /** Firebase-Constant, representing the list collection.*/
     public static final String LISTS_ROOT_KEY = "Lists";
+    /** Firebase-Constant, representing the collection of lists, which are shared between several users.*/
+    public static final String SHARED_LISTS_KEY = "SharedLists";
+    /** Firebase-Constant, representing the member-property of a shared list, containing the uids of all its users.*/
+    public static final String MEMBERS_PROPERTY = "members";
     /**Firebase-Constant, representing the entries collection.*/
     public static final String ENTRIES_KEY = "Entries";
     /**Firebase-Constant, representing the history collection.*/
@@ -65,34 +86,97 @@ public class FirebaseSource implements Source {
     public static final String UNIT_OF_QUANTITY_PROPERTY = "unitOfQuantity";
     /**Firebase-Constant, representing the next-free-position-property of a list.*/
     public static final String NEXT_FREE_POSITION_PROPERTY = "nextFreePosition";
-    /**Firestore-Constant, representing the name of the folder, containing the images.*/
+    /**Firestore-Constant, representing the name of the folder, containing a folder with the images of every user.*/
     public static final String IMAGE_STORAGE_KEY = "uploads";
     /**Firebase-Constant, representing image-uri-property of an entry.*/
     public static final String IMAGE_URI_PROPERTY = "imageURI";
+    /**Firebase-Constant, representing thumbnail-uri-property of an entry.*/
+    public static final String THUMBNAIL_URI_PROPERTY = "thumbnailURI";
+    /**Firebase-Constant, representing the BlurHash-property of an entry, displayed while the image is loaded.*/
+    public static final String IMAGE_PLACEHOLDER_PROPERTY = "imagePlaceholder";
+    /**Firebase-Constant, representing a collection within the user-directory, which counts the references to every own image.*/
+    public static final String IMAGE_REFS_KEY = "ImageRefs";
+    /**Firebase-Constant, representing a collection within the user-directory, which marks the own images referenced by other users.*/
+    public static final String PINNED_IMAGES_KEY = "PinnedImages";
+    /**Firebase-Constant, representing the reference-counter-property of an image.*/
+    public static final String REF_COUNT_PROPERTY = "count";
+    /**Firebase-Constant, representing the point in time, when the references of an image changed last.*/
+    public static final String REF_UPDATED_PROPERTY = "updated";
     /**Firebase-Constant, representing the uid of an history-entry.*/
     public static final String HIST_UID_PROPERTY = "uid";
+    /**Firebase-Constant, representing the point in time, when a history-entry was used the last time.*/
+    public static final String LAST_USED_PROPERTY = "lastUsed";
+    /**Firebase-Constant, representing the version of the history-structure within the user-document.*/
+    public static final String HISTORY_VERSION_PROPERTY = "historyVersion";
     /**Firebase-Constant, representing a collection, which stores all user metadata.*/
     public static final String USERS_KEY = "User";
+    /**Firebase-Constant, representing a collection, which maps the normalized email-address of every user to his uid.*/
+    public static final String USER_EMAILS_KEY = "UserEmails";
+    /**Firebase-Constant, representing the uid-property of the email-index.*/
+    public static final String UID_PROPERTY = "uid";
 
     private final ToastUtility toastMaker = ToastUtility.getInstance();
+    /** All listeners run on this executor, so that they never block the main-thread.*/
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
+    private final ImageReferences references = new ImageReferences();
+    /** Compressions of images, which are not finished yet, by the path of their entry.*/
+    private final Map<String, Future<?>> pendingCompressions = new ConcurrentHashMap<>();
     private static final String FIREBASE_TAG = "FIREBASE";
+    /** Number of entries, which are loaded at once, when a list is displayed.*/
+    static final int ENTRIES_PAGE_SIZE = 50;
+    /** Firestore allows at most 500 writes within a single batch.*/
+    private static final int MAX_WRITES_PER_BATCH = 500;
+    /** A document is written together with the counters of its image and thumbnail.*/
+    private static final int MAX_WRITES_PER_DOC = 3;
+    /** Number of history-entries, which are loaded at once. The first page is displayed immediately.*/
+    static final int HISTORY_PAGE_SIZE = 100;
+    /** Version of the history-structure. Since version 1 every history-entry has a point in time, when it was used.*/
+    private static final long HISTORY_VERSION = 1;
+    private static boolean cacheConfigured = false;
 
-    private CollectionReference getListsRootCollectionRef() {
-        String uid = getUserId();
-        return FirebaseFirestore.getInstance().collection(USER_ROOT_KEY).document(uid).collection(LISTS_ROOT_KEY);
+    /**
+     * {@inheritDoc}
+     * Firestore only accepts settings before it's used the first time, e.g. not after the activity was recreated.
+     */
+    @Override
+    public void configureCache(long cacheSizeBytes) {
+        synchronized (FirebaseSource.class) {
+            if (cacheConfigured) {
+                return;
+            }
+            cacheConfigured = true;
+        }
+        FirebaseFirestoreSettings settings = new FirebaseFirestoreSettings.Builder()
+                .setPersistenceEnabled(true)
+                .setCacheSizeBytes(cacheSizeBytes)
+                .build();
+        try {
+            FirebaseFirestore.getInstance().setFirestoreSettings(settings);
+        } catch (IllegalStateException e) {
+            Log.d(FIREBASE_TAG, "Could not configure cache: " + e.getMessage());
+        }
     }
 
-    private String getUserId() {
-        String uid = FirebaseAuth.getInstance().getUid();
-        if (uid == null) {
-            Log.d(FIREBASE_TAG, "FirebaseAuth returned null for userId");
+    CollectionReference getListsRootCollectionRef() {
+        return UserReferences.current().getListsRoot();
+    }
+
+    /**
+     * Returns the document of a list, which is either within the user directory or shared.
+     */
+    private DocumentReference getListRef(ShoppingList list) {
+        if (list.isShared()) {
+            return FirebaseFirestore.getInstance().collection(SHARED_LISTS_KEY).document(list.getUid());
         }
-        return uid;
+        return getListsRootCollectionRef().document(list.getUid());
+    }
+
+    private String getUserId() {
+        return UserReferences.current().getUserId();
     }
 
     private CollectionReference getHistoryRootCollectionRef() {
-        String uid = getUserId();
-        return FirebaseFirestore.getInstance().collection(USER_ROOT_KEY).document(uid).collection(HISTORY_KEY);
+        return UserReferences.current().getHistoryRoot();
     }
 
     /**
@@ -100,112 +184,140 @@ public class FirebaseSource implements Source {
      * During this process, also the counters (done & total entries) of the list will be updated and
      * this entry will be added to history.
      *
-     * @param listId   The list-id, to which this entry should be added.
+     * @param list     The list, to which this entry should be added.
      * @param newEntry The new entry, which should be added.
      * @param context  The application context.
      */
     @Override
-    public void addEntry(String listId, ShoppingEntry newEntry, Context context) {
-        DocumentReference newEntryRef = getListsRootCollectionRef().document(listId).collection(ENTRIES_KEY).document(newEntry.getUid());
-        newEntryRef.set(newEntry)
-                .addOnSuccessListener(aVoid -> {
-                    updateListStatusCounter(listId);
-                    handleImageUpdate(listId, newEntry, context);
+    public void addEntry(ShoppingList list, ShoppingEntry newEntry, Context context) {
+        DocumentReference listRef = getListRef(list);
+        DocumentReference newEntryRef = listRef.collection(ENTRIES_KEY).document(newEntry.getUid());
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        batch.set(newEntryRef, newEntry);
+        references.acquire(batch, newEntryRef, newEntry);
+        batch.commit()
+                .addOnSuccessListener(callbacks, aVoid -> {
+                    updateListStatusCounter(listRef);
+                    handleImageUpdate(listRef, newEntry, context);
                     Log.d(FIREBASE_TAG, "Success: Added Entry");
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(callbacks, e -> {
                             Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                             toastMaker.prepareToast("Fail: Add new Entry");
                         }
                 );
-        updateListInformation(listId, newEntry);
+        updateListInformation(listRef, newEntry);
     }
 
-    private void handleImageUpdate(String listId, ShoppingEntry newEntry, Context context) {
-        if (isUploadUri(newEntry)) {
-            uploadImage(listId, newEntry, context);
+    private void handleImageUpdate(DocumentReference listRef, ShoppingEntry newEntry, Context context) {
+        if (isLocalImage(newEntry)) {
+            uploadImage(listRef, newEntry, context);
         } else {
-            updateImage(listId, newEntry);
+            DocumentReference entryRef = buildPathForEntry(listRef, newEntry);
+            cancelCompression(entryRef.getPath());
+            if (context != null) {
+                getUploadQueue(context).cancel(entryRef.getPath());
+            }
+            updateImage(entryRef, newEntry);
         }
     }
 
-    private void updateListInformation(String listId, ShoppingEntry newEntry) {
+    private void updateListInformation(DocumentReference listRef, ShoppingEntry newEntry) {
         Map<String, Object> updateNextFreePosition = new HashMap<>();
         updateNextFreePosition.put(NEXT_FREE_POSITION_PROPERTY, newEntry.getPosition());
-        getListsRootCollectionRef().document(listId).update(updateNextFreePosition)
-                .addOnSuccessListener(aVoid -> {
-                    updateListStatusCounter(listId);
+        listRef.update(updateNextFreePosition)
+                .addOnSuccessListener(callbacks, aVoid -> {
+                    updateListStatusCounter(listRef);
                     Log.d(FIREBASE_TAG, "Success: Updated nextFreePosition");
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(callbacks, e -> {
                             Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                             toastMaker.prepareToast("Fail: Updated \"next free position\"");
                         }
                 );
     }
 
+    /**
+     * Only the history-entries with the same name are read, to check whether the entry is already contained.
+     * A contained history-entry is marked as used, so that it moves to the top of the history.
+     * The server is asked, since a history-entry, which is missing in the cache, would be added twice
+     * and count its images twice.
+     */
     private void addToHistory(ShoppingEntry newEntry) {
-        getHistory().addOnSuccessListener(snapshots -> {
-            Set<EntryHistoryElement> collectedHistory = collectHistoryAsSet(snapshots);
-            boolean alreadyContained = collectedHistory.contains(newEntry.extractHistoryElement());
-            if (!alreadyContained) {
-                addNewElementToHistory(newEntry);
-            }
-        });
+        EntryHistoryElement historyElement = newEntry.extractHistoryElement();
+        ReadPolicy.SERVER_THEN_CACHE.get(getHistoryRootCollectionRef().whereEqualTo(NAME_PROPERTY, historyElement.getName()))
+                .addOnSuccessListener(callbacks, snapshots -> {
+                    Optional<DocumentSnapshot> contained = snapshots.getDocuments().stream()
+                            .filter(doc -> makeHistoryElement(doc).equals(historyElement))
+                            .findFirst();
+                    if (contained.isPresent()) {
+                        contained.get().getReference().update(LAST_USED_PROPERTY, historyElement.getLastUsed())
+                                .addOnFailureListener(callbacks, e -> Log.d(FIREBASE_TAG, "Could not update history: " + e.getMessage()));
+                    } else {
+                        addNewElementToHistory(historyElement);
+                    }
+                });
     }
 
-    private void addNewElementToHistory(ShoppingEntry newEntry) {
-        EntryHistoryElement historyElement = newEntry.extractHistoryElement();
-        getHistoryRootCollectionRef().document(historyElement.getUid()).set(historyElement)
-                .addOnSuccessListener(aVoid ->
-                        Log.d(FIREBASE_TAG, "Success: Added to History")
-                )
-                .addOnFailureListener(e -> {
+    private void addNewElementToHistory(EntryHistoryElement historyElement) {
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        batch.set(getHistoryRootCollectionRef().document(historyElement.getUid()), historyElement);
+        references.acquire(batch, historyElement);
+        batch.commit()
+                .addOnSuccessListener(callbacks, aVoid -> Log.d(FIREBASE_TAG, "Success: Added to History"))
+                .addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Add To History");
                 });
     }
 
-    private Set<EntryHistoryElement> collectHistoryAsSet(QuerySnapshot snapshots) {
-        return snapshots.getDocuments()
-                .stream()
-                .map(this::makeHistoryElement)
-                .collect(toSet());
-    }
-
     /**
      * Deletes an entry.
      * During this process, also the counters (done & total entries) of the list will be updated.
      *
-     * @param listId      Id of the list, containg this entry.
+     * @param list        The list, containg this entry.
      * @param documentUid Id of the entry, which should be deleted.
      */
     @Override
-    public void deleteEntry(String listId, String documentUid) {
-        DocumentReference entryRef = getListsRootCollectionRef().document(listId).collection(ENTRIES_KEY).document(documentUid);
-        entryRef.delete()
-                .addOnSuccessListener(aVoid -> {
-                    updateListStatusCounter(listId);
+    public void deleteEntry(ShoppingList list, String documentUid) {
+        DocumentReference listRef = getListRef(list);
+        DocumentReference entryRef = listRef.collection(ENTRIES_KEY).document(documentUid);
+        entryRef.get()
+                .onSuccessTask(callbacks, entry -> {
+                    WriteBatch batch = FirebaseFirestore.getInstance().batch();
+                    batch.delete(entryRef);
+                    releaseImages(batch, entry);
+                    return batch.commit();
+                })
+                .addOnSuccessListener(callbacks, aVoid -> {
+                    updateListStatusCounter(listRef);
                     Log.d(FIREBASE_TAG, "Success: Deleted Entry");
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(callbacks, e -> {
                             Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                             toastMaker.prepareToast("Fail: Delete Entry");
                         }
                 );
     }
 
-    private void updateListStatusCounter(String listId) {
-        Task<QuerySnapshot> querySnapshotTask = getListsRootCollectionRef().document(listId).collection(ENTRIES_KEY).get();
-        querySnapshotTask.addOnSuccessListener(queryDocumentSnapshots -> {
-            long done = queryDocumentSnapshots.getDocuments().stream().filter(doc -> (Boolean) doc.get(FirebaseSource.DONE_PROPERTY)).count();
+    /**
+     * The counters of a displayed list are computed from the displayed entries, see {@link ListCounterMaintainer}.
+     * Otherwise all entries are read.
+     */
+    private void updateListStatusCounter(DocumentReference listRef) {
+        if (ListCounterMaintainer.isMaintained(listRef)) {
+            return;
+        }
+        Task<QuerySnapshot> querySnapshotTask = listRef.collection(ENTRIES_KEY).get();
+        querySnapshotTask.addOnSuccessListener(callbacks, queryDocumentSnapshots -> {
+            long done = queryDocumentSnapshots.getDocuments().stream().filter(doc -> Boolean.TRUE.equals(doc.getBoolean(DONE_PROPERTY))).count();
             long total = queryDocumentSnapshots.getDocuments().size();
             Map<String, Object> counterVars = buildMapForUpdate(done, total);
-            getListsRootCollectionRef().document(listId).update(counterVars)
-                    .addOnSuccessListener(aVoid ->
+            listRef.update(counterVars)
+                    .addOnSuccessListener(callbacks, aVoid ->
                             Log.d(FIREBASE_TAG, "Success: " + done + "/" + total)
                     )
-                    .addOnFailureListener(e -> {
+                    .addOnFailureListener(callbacks, e -> {
                                 Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                                 toastMaker.prepareToast("Fail: Update List Counter");
                             }
@@ -228,10 +340,10 @@ public class FirebaseSource implements Source {
     @Override
     public void addList(ShoppingList shoppingList) {
         getListsRootCollectionRef().document(shoppingList.getUid()).set(shoppingList)
-                .addOnSuccessListener(aVoid ->
+                .addOnSuccessListener(callbacks, aVoid ->
                         Log.d(FIREBASE_TAG, "Success: Added List")
                 )
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(callbacks, e -> {
                             Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                             toastMaker.prepareToast("Fail: Add List");
                         }
@@ -240,39 +352,77 @@ public class FirebaseSource implements Source {
 
     /**
      * Deletes a list from firebase.
+     * A shared list is only left by the user, as long as other members still use it.
      *
-     * @param listId Id of the list, which is supposed to be deleted.
+     * @param list The list, which is supposed to be deleted.
      */
     @Override
-    public void deleteList(String listId) {
-        Task<QuerySnapshot> query = getListsRootCollectionRef().document(listId).collection(ENTRIES_KEY).get();
-        query.addOnSuccessListener(aVoid -> {
+    public void deleteList(ShoppingList list) {
+        DocumentReference listRef = getListRef(list);
+        if (!list.isShared()) {
+            deleteListWithEntries(listRef);
+            return;
+        }
+        listRef.get().addOnSuccessListener(callbacks, snapshot -> {
+            List<?> members = (List<?>) snapshot.get(MEMBERS_PROPERTY);
+            if (members != null && members.size() > 1) {
+                leaveSharedList(listRef);
+            } else {
+                deleteListWithEntries(listRef);
+            }
+        }).addOnFailureListener(callbacks, e -> {
+                    Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
+                    toastMaker.prepareToast("Fail: Delete List");
+                }
+        );
+    }
+
+    private void leaveSharedList(DocumentReference listRef) {
+        listRef.update(MEMBERS_PROPERTY, FieldValue.arrayRemove(getUserId()))
+                .addOnSuccessListener(callbacks, aVoid ->
+                        Log.d(FIREBASE_TAG, "Success: Left shared List")
+                )
+                .addOnFailureListener(callbacks, e -> {
+                            Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
+                            toastMaker.prepareToast("Fail: Delete List");
+                        }
+                );
+    }
+
+    /**
+     * The entries are read from the server, since the cache might lack entries, which other members added.
+     * Those would be left behind without releasing their images.
+     */
+    private void deleteListWithEntries(DocumentReference listRef) {
+        Task<QuerySnapshot> query = ReadPolicy.SERVER_THEN_CACHE.get(listRef.collection(ENTRIES_KEY));
+        query.addOnSuccessListener(callbacks, aVoid -> {
             List<DocumentSnapshot> documents = Objects.requireNonNull(query.getResult()).getDocuments();
             AtomicInteger docsToDelete = new AtomicInteger(documents.size());
-            documents.stream()
-                    .map(doc -> buildPathForEntryDoc(listId, doc))
-                    .forEach(doc -> deleteEntry(listId, docsToDelete, doc));
-            deleteListIfAllDocWereDeleted(listId, docsToDelete);
+            documents.forEach(doc -> deleteEntry(listRef, docsToDelete, doc));
+            deleteListIfAllDocWereDeleted(listRef, docsToDelete);
             Log.d(FIREBASE_TAG, "Success: Deleted all entries");
-        }).addOnFailureListener(e -> {
+        }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Delete List");
                 }
         );
     }
 
-    private void deleteListIfAllDocWereDeleted(String listId, AtomicInteger docsToDelete) {
+    private void deleteListIfAllDocWereDeleted(DocumentReference listRef, AtomicInteger docsToDelete) {
         if (docsToDelete.get() == 0) {
-            deleteListOnly(listId);
+            deleteListOnly(listRef);
         }
     }
 
-    private void deleteEntry(String listId, AtomicInteger docsToDelete, DocumentReference doc) {
-        doc.delete().addOnSuccessListener(aVoid -> {
+    private void deleteEntry(DocumentReference listRef, AtomicInteger docsToDelete, DocumentSnapshot doc) {
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        batch.delete(buildPathForEntryDoc(listRef, doc));
+        releaseImages(batch, doc);
+        batch.commit().addOnSuccessListener(callbacks, aVoid -> {
             docsToDelete.decrementAndGet();
-            deleteListIfAllDocWereDeleted(listId, docsToDelete);
+            deleteListIfAllDocWereDeleted(listRef, docsToDelete);
             Log.d(FIREBASE_TAG, "Deleted entry");
-        }).addOnFailureListener(e -> {
+        }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Delete Entry");
                 }
@@ -283,25 +433,46 @@ public class FirebaseSource implements Source {
      * {@inheritDoc}
      */
     @Override
-    public FirestoreRecyclerOptions<ShoppingEntry> getShoppingListRecyclerViewOptions(String listId) {
-        Query query = getListsRootCollectionRef().document(listId).collection(ENTRIES_KEY).orderBy(POSITION_PROPERTY);
+    public FirestoreRecyclerOptions<ShoppingEntry> getShoppingListRecyclerViewOptions(ShoppingList list) {
+        DocumentReference listRef = getListRef(list);
+        Query query = getEntriesQuery(listRef);
+        SnapshotParser<ShoppingEntry> parser = snapshot -> Objects.requireNonNull(snapshot.toObject(ShoppingEntry.class));
+        PagedSnapshotArray<ShoppingEntry> entries = new PagedSnapshotArray<>(query, ENTRIES_PAGE_SIZE, parser);
+        entries.setResultObserver(new ListCounterMaintainer(listRef, list.getDone(), list.getTotal()));
         return new FirestoreRecyclerOptions.Builder<ShoppingEntry>()
-                .setQuery(query, ShoppingEntry.class)
+                .setSnapshotArray(entries)
                 .build();
     }
 
 
     /**
      * {@inheritDoc}
+     * The own lists and the shared lists, the user is a member of, are combined and ordered by name.
      */
     @Override
     public FirestoreRecyclerOptions<ShoppingList> getShoppingListsRecyclerViewOptions() {
-        Query lists = getListsRootCollectionRef().orderBy(NAME_PROPERTY);
+        Query ownLists = getListsRootCollectionRef();
+        Query sharedLists = getSharedListsQuery();
+        Comparator<DocumentSnapshot> byName = Comparator.comparing(
+                (DocumentSnapshot doc) -> doc.getString(NAME_PROPERTY), Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(DocumentSnapshot::getId);
+        SnapshotParser<ShoppingList> parser = snapshot -> Objects.requireNonNull(snapshot.toObject(ShoppingList.class));
         return new FirestoreRecyclerOptions.Builder<ShoppingList>()
-                .setQuery(lists, ShoppingList.class)
+                .setSnapshotArray(new MergedSnapshotArray<>(parser, byName, ownLists, sharedLists))
                 .build();
     }
 
+    /**
+     * Returns the entries of a list in the displayed order.
+     */
+    Query getEntriesQuery(DocumentReference listRef) {
+        return listRef.collection(ENTRIES_KEY).orderBy(POSITION_PROPERTY);
+    }
+
+    Query getSharedListsQuery() {
+        return FirebaseFirestore.getInstance().collection(SHARED_LISTS_KEY).whereArrayContains(MEMBERS_PROPERTY, getUserId());
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -309,27 +480,94 @@ public class FirebaseSource implements Source {
     public void updateEntryPosition(ShoppingList list, ShoppingEntry entry, int position) {
         Map<String, Object> updatePosition = new HashMap<>();
         updatePosition.put(POSITION_PROPERTY, position);
-        getListsRootCollectionRef().document(list.getUid()).collection(ENTRIES_KEY).document(entry.getUid()).update(updatePosition);
+        getListRef(list).collection(ENTRIES_KEY).document(entry.getUid()).update(updatePosition);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The entries are updated in batches and the counters of the list are updated once afterwards.
+     */
+    @Override
+    public void checkAllEntries(ShoppingList list) {
+        DocumentReference listRef = getListRef(list);
+        listRef.collection(ENTRIES_KEY).whereEqualTo(DONE_PROPERTY, false).get()
+                .onSuccessTask(callbacks, snapshots -> commitInBatches(snapshots.getDocuments(),
+                        (batch, doc) -> batch.update(doc.getReference(), DONE_PROPERTY, true)))
+                .addOnSuccessListener(callbacks, aVoid -> {
+                    updateListStatusCounter(listRef);
+                    Log.d(FIREBASE_TAG, "Success: Checked all entries");
+                })
+                .addOnFailureListener(callbacks, e -> {
+                            Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
+                            toastMaker.prepareToast("Fail: Check All");
+                        }
+                );
+    }
+
+    /**
+     * {@inheritDoc}
+     * The entries are deleted in batches and the counters of the list are updated once afterwards.
+     */
+    @Override
+    public void deleteEntries(ShoppingList list, boolean onlyDone) {
+        DocumentReference listRef = getListRef(list);
+        Query entries = listRef.collection(ENTRIES_KEY);
+        if (onlyDone) {
+            entries = entries.whereEqualTo(DONE_PROPERTY, true);
+        }
+        entries.get()
+                .onSuccessTask(callbacks, snapshots -> commitInBatches(snapshots.getDocuments(),
+                        (batch, doc) -> {
+                            batch.delete(doc.getReference());
+                            releaseImages(batch, doc);
+                        }))
+                .addOnCompleteListener(callbacks, task -> updateListStatusCounter(listRef))
+                .addOnSuccessListener(callbacks, aVoid -> Log.d(FIREBASE_TAG, "Success: Deleted entries"))
+                .addOnFailureListener(callbacks, e -> {
+                            Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
+                            toastMaker.prepareToast("Fail: Delete Entries");
+                        }
+                );
+    }
+
+    /**
+     * Writes the documents in batches, which are committed in parallel.
+     *
+     * @param docs  The documents to write.
+     * @param write Adds the writes of a single document to a batch. At most {@link #MAX_WRITES_PER_DOC}.
+     * @return Returns a task, which completes after all batches were committed.
+     */
+    private Task<Void> commitInBatches(List<DocumentSnapshot> docs, BiConsumer<WriteBatch, DocumentSnapshot> write) {
+        List<Task<Void>> commits = new ArrayList<>();
+        int docsPerBatch = MAX_WRITES_PER_BATCH / MAX_WRITES_PER_DOC;
+        for (int start = 0; start < docs.size(); start += docsPerBatch) {
+            List<DocumentSnapshot> chunk = docs.subList(start, Math.min(start + docsPerBatch, docs.size()));
+            WriteBatch batch = FirebaseFirestore.getInstance().batch();
+            chunk.forEach(doc -> write.accept(batch, doc));
+            commits.add(batch.commit());
+        }
+        return Tasks.whenAll(commits);
     }
 
     /**
      * Updates if the entry is done or not.
      * During this process the done counter of the corresponding list will be updated.
      *
-     * @param listId Id of the list containing the entry.
-     * @param entry  The entry, with the new done-status.
+     * @param list  The list containing the entry.
+     * @param entry The entry, with the new done-status.
      */
     @Override
-    public void updateStatusDone(String listId, ShoppingEntry entry) {
+    public void updateStatusDone(ShoppingList list, ShoppingEntry entry) {
         Map<String, Object> updateIsDone = new HashMap<>();
         updateIsDone.put(DONE_PROPERTY, entry.isDone());
-        getListsRootCollectionRef().document(listId).collection(ENTRIES_KEY).document(entry.getUid())
+        DocumentReference listRef = getListRef(list);
+        listRef.collection(ENTRIES_KEY).document(entry.getUid())
                 .update(updateIsDone)
-                .addOnSuccessListener(aVoid -> {
-                    updateListStatusCounter(listId);
+                .addOnSuccessListener(callbacks, aVoid -> {
+                    updateListStatusCounter(listRef);
                     Log.d(FIREBASE_TAG, "Success: Updated Status");
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(callbacks, e -> {
                             Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                             toastMaker.prepareToast("Fail: Update Status \"Done\"");
                         }
@@ -343,11 +581,11 @@ public class FirebaseSource implements Source {
     public void updateListName(ShoppingList list) {
         Map<String, Object> updateName = new HashMap<>();
         updateName.put(NAME_PROPERTY, list.getName());
-        getListsRootCollectionRef().document(list.getUid()).update(updateName)
-                .addOnSuccessListener(aVoid ->
+        getListRef(list).update(updateName)
+                .addOnSuccessListener(callbacks, aVoid ->
                         Log.d(FIREBASE_TAG, "Success: Updated Name")
                 )
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(callbacks, e -> {
                             Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                             toastMaker.prepareToast("Fail: Update List Name");
                         }
@@ -365,21 +603,26 @@ public class FirebaseSource implements Source {
     @Override
     public void modifyWholeEntry(ShoppingList list, ShoppingEntry entry, Context context) {
         Map<String, Object> updateEntryMap = buildUpdateMap(entry);
-        getListsRootCollectionRef().document(list.getUid()).collection(ENTRIES_KEY).document(entry.getUid()).update(updateEntryMap)
-                .addOnSuccessListener(aVoid -> {
-                    handleImageUpdate(list.getUid(), entry, context);
+        DocumentReference listRef = getListRef(list);
+        listRef.collection(ENTRIES_KEY).document(entry.getUid()).update(updateEntryMap)
+                .addOnSuccessListener(callbacks, aVoid -> {
+                    handleImageUpdate(listRef, entry, context);
                     Log.d(FIREBASE_TAG, "Success: Updated Entry");
-                }).addOnFailureListener(e -> {
+                }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Modify Entry");
                 }
         );
-        updateListStatusCounter(list.getUid());
+        updateListStatusCounter(listRef);
     }
 
 
-    private boolean isUploadUri(ShoppingEntry entry) {
-        return entry.getImageURI() != null && !entry.getImageURI().startsWith("http");
+    /**
+     * Returns true, if the image of the entry only exists on the device and has to be uploaded.
+     */
+    private boolean isLocalImage(ShoppingEntry entry) {
+        ImageReference image = ImageReference.of(entry.getImageURI());
+        return image != null && !image.isRemote();
     }
 
 
@@ -396,21 +639,66 @@ public class FirebaseSource implements Source {
 
     /**
      * {@inheritDoc}
+     * The pages are read one after another, using the last history-entry of a page as cursor for the next one.
+     * A page is served by the cache, if the cache contains a full page. Since the history isn't shared
+     * with other users, the cache is rarely outdated.
      */
     @Override
-    public void getHistory(Consumer<List<EntryHistoryElement>> callback) {
-        Task<QuerySnapshot> querySnapshotTask = getHistoryRootCollectionRef().get();
-        querySnapshotTask.addOnSuccessListener(snapshots -> {
-            List<EntryHistoryElement> collectedHistory = collectHistoryAsList(snapshots);
-            callback.accept(collectedHistory);
-            Log.d(FIREBASE_TAG, "Success: Retrieved history");
-        }).addOnFailureListener(e -> {
+    public void getHistory(Predicate<List<EntryHistoryElement>> onPage) {
+        Query firstPage = getHistoryQuery().limit(HISTORY_PAGE_SIZE);
+        backfillLastUsed().addOnCompleteListener(callbacks, backfill -> loadHistoryPage(firstPage, onPage));
+    }
+
+    /**
+     * Returns the history, starting with the most recently used entries.
+     */
+    Query getHistoryQuery() {
+        return getHistoryRootCollectionRef().orderBy(LAST_USED_PROPERTY, Query.Direction.DESCENDING);
+    }
+
+    private void loadHistoryPage(Query page, Predicate<List<EntryHistoryElement>> onPage) {
+        ReadPolicy.CACHE_THEN_SERVER.get(page, snapshots -> snapshots.size() == HISTORY_PAGE_SIZE).addOnSuccessListener(callbacks, snapshots -> {
+            boolean wanted = onPage.test(collectHistoryAsList(snapshots));
+            if (wanted && snapshots.size() == HISTORY_PAGE_SIZE) {
+                DocumentSnapshot cursor = snapshots.getDocuments().get(snapshots.size() - 1);
+                loadHistoryPage(page.startAfter(cursor), onPage);
+            } else {
+                Log.d(FIREBASE_TAG, "Success: Retrieved history");
+            }
+        }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Retrieve History");
                 }
         );
     }
 
+    /**
+     * History-entries, which were created before the history was ordered by usage, don't have a point in time,
+     * when they were used. Since Firestore skips documents without the ordered property, they are set to
+     * the oldest possible point in time once. The user-document remembers, that this was done.
+     */
+    private Task<Void> backfillLastUsed() {
+        DocumentReference userRef = UserReferences.current().getUserRef();
+        return userRef.get().onSuccessTask(callbacks, user -> {
+            Long version = user.getLong(HISTORY_VERSION_PROPERTY);
+            if (version != null && version >= HISTORY_VERSION) {
+                return Tasks.forResult(null);
+            }
+            return getHistoryRootCollectionRef().get()
+                    .onSuccessTask(callbacks, history -> {
+                        List<DocumentSnapshot> unused = history.getDocuments().stream()
+                                .filter(doc -> !doc.contains(LAST_USED_PROPERTY))
+                                .collect(toList());
+                        return commitInBatches(unused, (batch, doc) -> batch.update(doc.getReference(), LAST_USED_PROPERTY, 0L));
+                    })
+                    .onSuccessTask(callbacks, aVoid -> {
+                        Map<String, Object> updateVersion = new HashMap<>();
+                        updateVersion.put(HISTORY_VERSION_PROPERTY, HISTORY_VERSION);
+                        return userRef.set(updateVersion, SetOptions.merge());
+                    });
+        }).addOnFailureListener(callbacks, e -> Log.d(FIREBASE_TAG, "Could not backfill history: " + e.getMessage()));
+    }
+
     private List<EntryHistoryElement> collectHistoryAsList(QuerySnapshot snapshots) {
         return snapshots.getDocuments()
                 .stream()
@@ -418,33 +706,39 @@ public class FirebaseSource implements Source {
                 .collect(toList());
     }
 
-
-    private Task<QuerySnapshot> getHistory() {
-        return getHistoryRootCollectionRef().get();
-    }
-
     private EntryHistoryElement makeHistoryElement(DocumentSnapshot doc) {
-        return new EntryHistoryElement((String) doc.get(NAME_PROPERTY), (String) doc.get(UNIT_OF_QUANTITY_PROPERTY),
+        EntryHistoryElement historyElement = new EntryHistoryElement((String) doc.get(NAME_PROPERTY), (String) doc.get(UNIT_OF_QUANTITY_PROPERTY),
                 (String) doc.get(DETAILS_PROPERTY), (String) doc.get(IMAGE_URI_PROPERTY),
+                (String) doc.get(THUMBNAIL_URI_PROPERTY), (String) doc.get(IMAGE_PLACEHOLDER_PROPERTY),
                 (String) doc.get(HIST_UID_PROPERTY));
+        Long lastUsed = doc.getLong(LAST_USED_PROPERTY);
+        historyElement.setLastUsed(lastUsed == null ? 0 : lastUsed);
+        return historyElement;
     }
 
-    private DocumentReference buildPathForEntryDoc(String listId, DocumentSnapshot doc) {
-        return getListsRootCollectionRef().document(listId).collection(ENTRIES_KEY).document(doc.getId());
+    private DocumentReference buildPathForEntryDoc(DocumentReference listRef, DocumentSnapshot doc) {
+        return listRef.collection(ENTRIES_KEY).document(doc.getId());
     }
 
 
+    /**
+     * Counts the images of a deleted entry or history-entry as used once less, within the batch, which deletes it.
+     */
+    private void releaseImages(WriteBatch batch, DocumentSnapshot doc) {
+        references.release(batch, doc.getString(IMAGE_URI_PROPERTY));
+        references.release(batch, doc.getString(THUMBNAIL_URI_PROPERTY));
+    }
+
     private DocumentReference buildPathForHistoryDoc(DocumentSnapshot doc) {
         return getHistoryRootCollectionRef().document(doc.getId());
     }
 
 
-    private void deleteListOnly(String listId) {
-        DocumentReference entryRef = getListsRootCollectionRef().document(listId);
-        entryRef.delete().addOnSuccessListener(aVoid ->
+    private void deleteListOnly(DocumentReference listRef) {
+        listRef.delete().addOnSuccessListener(callbacks, aVoid ->
                 Log.d(FIREBASE_TAG, "Success: Deleted List")
 
-        ).addOnFailureListener(e -> {
+        ).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Delete List");
                 }
@@ -456,12 +750,15 @@ public class FirebaseSource implements Source {
      */
     @Override
     public void deleteHistory() {
-        getHistoryRootCollectionRef().get().addOnSuccessListener(documentSnapshots -> {
-            documentSnapshots.getDocuments().stream()
-                    .map(this::buildPathForHistoryDoc)
-                    .forEach(DocumentReference::delete);
+        getHistoryRootCollectionRef().get().addOnSuccessListener(callbacks, documentSnapshots -> {
+            documentSnapshots.getDocuments().forEach(doc -> {
+                WriteBatch batch = FirebaseFirestore.getInstance().batch();
+                batch.delete(buildPathForHistoryDoc(doc));
+                releaseImages(batch, doc);
+                batch.commit().addOnFailureListener(callbacks, e -> Log.d(FIREBASE_TAG, "Could not delete history-entry: " + e.getMessage()));
+            });
             Log.d(FIREBASE_TAG, "Success: Deleted History");
-        }).addOnFailureListener(e -> {
+        }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Delete History");
                 }
@@ -470,37 +767,55 @@ public class FirebaseSource implements Source {
 
     /**
      * {@inheritDoc}
+     * Shared lists are only left, as long as other members still use them.
      */
     @Override
     public void deleteAllLists() {
-        Task<QuerySnapshot> querySnapshotTask = getListsRootCollectionRef().get();
-        querySnapshotTask.addOnSuccessListener(aVoid -> {
-            querySnapshotTask.getResult().getDocuments().stream()
-                    .map(DocumentSnapshot::getId)
+        Task<List<QuerySnapshot>> querySnapshotTask = Tasks.whenAllSuccess(getListsRootCollectionRef().get(), getSharedListsQuery().get());
+        querySnapshotTask.addOnSuccessListener(callbacks, snapshots -> {
+            snapshots.stream()
+                    .flatMap(snapshot -> snapshot.toObjects(ShoppingList.class).stream())
                     .forEach(this::deleteList);
             Log.d(FIREBASE_TAG, "Success: Deleted All Lists");
-        }).addOnFailureListener(e -> {
+        }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Delete all List");
                 }
         );
     }
 
-    private StorageReference buildStorageReference() {
-        return FirebaseStorage.getInstance().getReference(IMAGE_STORAGE_KEY + "/" + UUID.randomUUID());
+    private String buildStoragePath(String name) {
+        return UserReferences.current().getImageFolder() + "/" + name;
     }
 
-    private void updateImage(String listName, ShoppingEntry entry) {
+    private DocumentReference buildPathForEntry(DocumentReference listRef, ShoppingEntry entry) {
+        return listRef.collection(ENTRIES_KEY).document(entry.getUid());
+    }
+
+    /**
+     * The previous image-uris are read before the update, so that the references of a replaced image are released.
+     */
+    private Task<Void> updateImage(DocumentReference entryRef, ShoppingEntry entry) {
         String imageURI = entry.getImageURI();
+        String thumbnailURI = entry.getThumbnailURI();
         Map<String, Object> updateImageMap = new HashMap<>();
         updateImageMap.put(IMAGE_URI_PROPERTY, imageURI);
-        getListsRootCollectionRef().document(listName).collection(ENTRIES_KEY).document(entry.getUid()).update(updateImageMap).addOnSuccessListener(aVoid -> {
-                    Log.d(FIREBASE_TAG, "Success: Updated Image");
-                    ShoppingEntry entryWithImage = new ShoppingEntry(entry);
-                    entryWithImage.setImageURI(imageURI);
-                    addToHistory(entryWithImage);
-                }
-        ).addOnFailureListener(e -> {
+        updateImageMap.put(THUMBNAIL_URI_PROPERTY, thumbnailURI);
+        updateImageMap.put(IMAGE_PLACEHOLDER_PROPERTY, entry.getImagePlaceholder());
+        return entryRef.get().onSuccessTask(callbacks, previous -> {
+            WriteBatch batch = FirebaseFirestore.getInstance().batch();
+            batch.update(entryRef, updateImageMap);
+            references.replace(batch, entryRef, previous.getString(IMAGE_URI_PROPERTY), imageURI);
+            references.replace(batch, entryRef, previous.getString(THUMBNAIL_URI_PROPERTY), thumbnailURI);
+            return batch.commit();
+        }).addOnSuccessListener(callbacks, aVoid -> {
+            Log.d(FIREBASE_TAG, "Success: Updated Image");
+            ShoppingEntry entryWithImage = new ShoppingEntry(entry);
+            entryWithImage.setImageURI(imageURI);
+            entryWithImage.setThumbnailURI(thumbnailURI);
+            entryWithImage.setImagePlaceholder(entry.getImagePlaceholder());
+            addToHistory(entryWithImage);
+        }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Update Image");
                 }
@@ -510,41 +825,165 @@ public class FirebaseSource implements Source {
     /**
      * Uploads Image to Firebase Storage.
      * Afterwards an update of the specific ShoppingEntry is triggered.
-     * Tries to compress images if possible.
+     * Tries to compress images if possible. The compressed image is written into a file in the
+     * cache-directory and uploaded from there, so it's never held in memory as a whole.
+     * The size of the compressed image is limited by the byte budget,
+     * configured as {@code R.integer.image_upload_byte_budget}.
+     * Next to the full-size image a thumbnail is uploaded, which is used within lists.
+     * The upload itself is handed over to the {@link ImageUploadQueue}, so that it's retried if it fails
+     * and continued after a restart of the app.
+     * Compression runs on the image-processing executor, never on the main-thread. A pending compression
+     * of the same entry is cancelled, since its image was replaced.
      *
-     * @param listName Name of the shopping list
-     * @param entry    Entry which
-     * @param context  Context of the image-uri
+     * @param list    The shopping list
+     * @param entry   Entry which
+     * @param context Context of the image-uri
      */
     @Override
-    public void uploadImage(String listName, ShoppingEntry entry, Context context) {
-        Uri imageURI = Uri.parse(entry.getImageURI());
-        final StorageReference image = buildStorageReference();
-        byte[] compressedImageBytes = new ImageCompressorToJPEG(context).compress(imageURI, 30);
-        UploadTask uploadTask;
-        if (isCompressed(compressedImageBytes)) {
-            uploadTask = image.putBytes(compressedImageBytes);
+    public void uploadImage(ShoppingList list, ShoppingEntry entry, Context context) {
+        uploadImage(getListRef(list), entry, context);
+    }
+
+    private void uploadImage(DocumentReference listRef, ShoppingEntry entry, Context context) {
+        String entryPath = buildPathForEntry(listRef, entry).getPath();
+        String source = entry.getImageURI();
+        FutureTask<Void> compression = new FutureTask<Void>(() -> compressAndEnqueue(entryPath, source, context), null) {
+            @Override
+            protected void done() {
+                pendingCompressions.remove(entryPath, this);
+            }
+        };
+        cancelCompression(entryPath);
+        pendingCompressions.put(entryPath, compression);
+        AppExecutors.getInstance().imageProcessing().execute(compression);
+    }
+
+    /**
+     * Stops the compression of an image, which isn't needed anymore, because the image of the entry
+     * was replaced or removed in the meantime.
+     */
+    private void cancelCompression(String entryPath) {
+        Future<?> pending = pendingCompressions.remove(entryPath);
+        if (pending != null) {
+            pending.cancel(true);
+        }
+    }
+
+    private void compressAndEnqueue(String entryPath, String source, Context context) {
+        long byteBudget = context.getResources().getInteger(R.integer.image_upload_byte_budget);
+        long thumbnailByteBudget = context.getResources().getInteger(R.integer.image_thumbnail_byte_budget);
+        CompressedImage compressedImage = new ImageCompressorToSmallestFormat(context)
+                .compressWithThumbnail(Uri.parse(source), byteBudget, thumbnailByteBudget);
+        ImageUploadJob.Rendition image;
+        ImageUploadJob.Rendition thumbnail = null;
+        if (isCompressed(compressedImage)) {
+            image = buildRendition(source, compressedImage.getImage(), context);
+            if (compressedImage.hasThumbnail()) {
+                thumbnail = buildRendition(source, compressedImage.getThumbnail(), context);
+            }
         } else {
-            uploadTask = image.putFile(imageURI);
+            image = buildRendition(source, null, context);
         }
-        reactToResultOfUpload(uploadTask, image, listName, entry);
+        if (Thread.currentThread().isInterrupted()) {
+            Log.d(FIREBASE_TAG, "Cancelled compression for " + entryPath);
+            deleteCompressedImage(compressedImage);
+            return;
+        }
+        String placeholder = isCompressed(compressedImage) ? compressedImage.getPlaceholder() : null;
+        getUploadQueue(context).enqueue(new ImageUploadJob(entryPath, image, thumbnail, placeholder));
     }
 
-    private boolean isCompressed(byte[] compressedImageBytes) {
-        return compressedImageBytes != null;
+    private void deleteCompressedImage(CompressedImage compressedImage) {
+        if (!isCompressed(compressedImage)) {
+            return;
+        }
+        List<File> files = new ArrayList<>();
+        files.add(compressedImage.getImage());
+        if (compressedImage.hasThumbnail()) {
+            files.add(compressedImage.getThumbnail());
+        }
+        files.stream().filter(file -> !file.delete()).forEach(file -> Log.d(FIREBASE_TAG, "Could not delete " + file.getName()));
     }
 
-    private void reactToResultOfUpload(UploadTask uploadTask, StorageReference image, String listName, ShoppingEntry entry) {
-        uploadTask.addOnSuccessListener(taskSnapshot -> image.getDownloadUrl()
-                .addOnSuccessListener(downloadUri -> {
-                    entry.setImageURI(downloadUri.toString());
-                    updateImage(listName, entry);
-                }))
-                .addOnFailureListener(e -> {
-                            Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
-                            toastMaker.prepareToast("Fail: Upload compressed Image");
-                        }
-                );
+    /**
+     * Images are stored under the hash of their content within the folder of the user. So identical images
+     * of the user, e.g. of entries added from the history, share a single file in storage and are uploaded only once.
+     */
+    private ImageUploadJob.Rendition buildRendition(String source, File compressed, Context context) {
+        Uri content = compressed == null ? Uri.parse(source) : Uri.fromFile(compressed);
+        return new ImageUploadJob.Rendition(buildStoragePath(getContentHash(content, context)), source, compressed);
+    }
+
+    private String getContentHash(Uri content, Context context) {
+        try (InputStream input = context.getContentResolver().openInputStream(content)) {
+            if (input != null) {
+                return HashUtility.sha256(input);
+            }
+        } catch (IOException e) {
+            Log.d(FIREBASE_TAG, "Could not hash image: " + e.getMessage());
+        }
+        return UUID.randomUUID().toString();
+    }
+
+    private boolean isCompressed(CompressedImage compressedImage) {
+        return compressedImage != null;
+    }
+
+    private ImageUploadQueue getUploadQueue(Context context) {
+        ImageUploadQueue uploadQueue = ImageUploadQueue.getInstance(context);
+        uploadQueue.setUploadCompletion(this::finishUpload);
+        return uploadQueue;
+    }
+
+    /**
+     * Writes the download-urls of an uploaded image into its entry.
+     * The entry is read again, since it might have been modified or deleted during the upload.
+     */
+    private Task<Void> finishUpload(ImageUploadJob job) {
+        DocumentReference entryRef = FirebaseFirestore.getInstance().document(job.getEntryPath());
+        return entryRef.get().onSuccessTask(callbacks, snapshot -> {
+            ShoppingEntry entry = snapshot.toObject(ShoppingEntry.class);
+            if (entry == null) {
+                Log.d(FIREBASE_TAG, "Entry of uploaded image was deleted");
+                return Tasks.forResult(null);
+            }
+            entry.setImageURI(job.getImage().getDownloadUrl());
+            entry.setThumbnailURI(job.hasThumbnail() ? job.getThumbnail().getDownloadUrl() : null);
+            entry.setImagePlaceholder(job.getPlaceholder());
+            return updateImage(entryRef, entry);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resumePendingUploads(Context context) {
+        getUploadQueue(context).resume();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void deleteUnusedImages(Context context) {
+        new ImageGarbageCollector(this, context).collectIfDue();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void warmUpCaches(Context context) {
+        new CacheWarmer(this, context).warmUp();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void rememberOpenedList(ShoppingList list, Context context) {
+        new CacheWarmer(this, context).rememberOpened(getListRef(list));
     }
 
     /**
@@ -553,8 +992,14 @@ public class FirebaseSource implements Source {
     @Override
     public void deleteHistoryEntry(EntryHistoryElement historyEntry) {
         String historyId = historyEntry.getUid();
-        getHistoryRootCollectionRef().document(historyId).delete()
-                .addOnSuccessListener(aVoid -> Log.d(FIREBASE_TAG, "Success: Deleted history-entry")).addOnFailureListener(e -> {
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        batch.delete(getHistoryRootCollectionRef().document(historyId));
+        references.release(batch, historyEntry.getImageURI());
+        references.release(batch, historyEntry.getThumbnailURI());
+        batch.commit()
+                .addOnSuccessListener(callbacks, aVoid -> {
+                    Log.d(FIREBASE_TAG, "Success: Deleted history-entry");
+                }).addOnFailureListener(callbacks, e -> {
                     Log.d(FIREBASE_TAG, Objects.requireNonNull(e.getMessage()));
                     toastMaker.prepareToast("Fail: Delete List");
                 }
@@ -1,5 +1,7 @@
 package de.db.shoppinglist.database;
 
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
@@ -7,8 +9,15 @@ import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.GoogleAuthProvider;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import de.db.shoppinglist.model.UserInfo;
+import de.db.shoppinglist.utility.AppExecutors;
+import de.db.shoppinglist.utility.HashUtility;
 
 /**
  * This interface allows to sign-in and -out of the application, based on Google.
@@ -16,6 +25,10 @@ import de.db.shoppinglist.model.UserInfo;
 public class GoogleLogin implements Login {
 
     private static final String GOOGLE_LOGIN_TAG = "GoogleLogin";
+    private static final String PREFERENCES_NAME = "login";
+    private static final String USER_INFO_HASH_KEY = "userInfoHash_";
+
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
 
     /**
      * Complete sign-out, using the {@link GoogleSignInClient}.
@@ -28,34 +41,62 @@ public class GoogleLogin implements Login {
     public void signOut(GoogleSignInClient googleSignInClient) {
         FirebaseAuth firebaseAuth = FirebaseAuth.getInstance();
         firebaseAuth.signOut();
+        UserReferences.refresh();
         googleSignInClient.signOut().addOnCompleteListener(task -> Log.d(GOOGLE_LOGIN_TAG, "Completely logged out"));
     }
 
     /**
      * Allows to sign-in.
+     * The user is registered after the post-sign-in action was started, so that the navigation doesn't wait for it.
      *
      * @param idToken          Token for identification.
+     * @param context          The application context.
      * @param postSignInAction Action, running after the signIn.
      *                         Typically used for navigation to different fragment.
      */
     @Override
-    public void signIn(String idToken, Runnable postSignInAction) {
+    public void signIn(String idToken, Context context, Runnable postSignInAction) {
         AuthCredential credential = GoogleAuthProvider.getCredential(idToken, null);
         FirebaseAuth firebaseAuth = FirebaseAuth.getInstance();
         firebaseAuth.signInWithCredential(credential)
                 .addOnCompleteListener(task -> {
                     if (task.isSuccessful()) {
-                        addToUsers();
+                        UserReferences.refresh();
                         postSignInAction.run();
+                        UserInfo userInfo = new UserInfo(firebaseAuth);
+                        String userId = getUserId();
+                        callbacks.execute(() -> addToUsers(context, userId, userInfo));
                     } else {
                         Log.w(GOOGLE_LOGIN_TAG, "Failed to sign in via Google", task.getException());
                     }
                 });
     }
 
-    private void addToUsers() {
-        UserInfo userInfo = new UserInfo(FirebaseAuth.getInstance());
-        FirebaseFirestore.getInstance().collection(FirebaseSource.USERS_KEY).document(getUserId()).set(userInfo);
+    /**
+     * Next to the user-metadata, the normalized email-address is registered in an index,
+     * so that other users find this user with a single read, see {@link RecipientLookup}.
+     * A hash of the written metadata is kept on the device, so that they're only written again,
+     * if the name or the email-address changed.
+     */
+    private void addToUsers(Context context, String userId, UserInfo userInfo) {
+        SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        String hashKey = USER_INFO_HASH_KEY + userId;
+        String hash = HashUtility.sha256(userInfo.getDisplayName() + "\n" + userInfo.getEmail());
+        if (hash.equals(preferences.getString(hashKey, null))) {
+            Log.d(GOOGLE_LOGIN_TAG, "User is already registered");
+            return;
+        }
+        FirebaseFirestore firestore = FirebaseFirestore.getInstance();
+        WriteBatch batch = firestore.batch();
+        batch.set(firestore.collection(FirebaseSource.USERS_KEY).document(userId), userInfo);
+        if (userInfo.getEmail() != null) {
+            Map<String, Object> index = new HashMap<>();
+            index.put(FirebaseSource.UID_PROPERTY, userId);
+            batch.set(firestore.collection(FirebaseSource.USER_EMAILS_KEY).document(RecipientLookup.normalize(userInfo.getEmail())), index);
+        }
+        batch.commit()
+                .addOnSuccessListener(callbacks, aVoid -> preferences.edit().putString(hashKey, hash).apply())
+                .addOnFailureListener(callbacks, e -> Log.w(GOOGLE_LOGIN_TAG, "Failed to register user", e));
     }
 
     private String getUserId() {
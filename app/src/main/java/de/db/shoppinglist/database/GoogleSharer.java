@@ -1,25 +1,45 @@
 package de.db.shoppinglist.database;
 
+import android.content.Context;
 import android.util.Log;
 
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+import de.db.shoppinglist.model.ShareMode;
+import de.db.shoppinglist.model.ShareResult;
 import de.db.shoppinglist.model.ShoppingEntry;
 import de.db.shoppinglist.model.ShoppingList;
+import de.db.shoppinglist.utility.AppExecutors;
 import de.db.shoppinglist.utility.ToastUtility;
 
 import static de.db.shoppinglist.database.FirebaseSource.*;
 
 /**
- * This class allows sharing of data between users, based on their google-mail-address.
+ * This class allows sharing of data between users, based on their google-mail-addresses.
  */
 public class GoogleSharer implements Sharer {
 
@@ -27,82 +47,306 @@ public class GoogleSharer implements Sharer {
     public static final String EMAIL_PROPERTY = "email";
     private static ToastUtility toastMaker = ToastUtility.getInstance();
     private static final String SHARER_TAG = "GoogleSharer";
+    /** Firestore allows at most 500 writes within a single batch.*/
+    private static final int MAX_WRITES_PER_BATCH = 500;
+    /** Number of writes within the last batch, which are reserved for the list itself.*/
+    private static final int MAX_LIST_WRITES = 3;
+    /** A shared entry is written together with the pins of its image and thumbnail.*/
+    private static final int MAX_WRITES_PER_ENTRY = 3;
+    /** Number of receivers, whose copies are written at the same time.*/
+    private static final int MAX_PARALLEL_RECEIVERS = 3;
+    private final ImageReferences references = new ImageReferences();
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
 
     /**
-     * Enables sharing between two users.
-     * All data is simply copied to the receiving user-directory.
-     * The copy is independent of the original source.
+     * Enables sharing between users.
      * It's not possible to share with yourself.
+     * <ul>
+     *     <li>{@link ShareMode#COPY}: All data is simply copied to the receiving user-directories.
+     *     The copies are independent of the original source. The entries are read once for all receivers
+     *     and at most {@link #MAX_PARALLEL_RECEIVERS} receivers are written at the same time.</li>
+     *     <li>{@link ShareMode#LIVE}: The list is moved out of the user-directory into the shared lists
+     *     and the receiving users become members. Afterwards every change is written once for all members.
+     *     If the list is already shared, only the members are added.</li>
+     * </ul>
+     * The receiving users are resolved concurrently. The entries are written in batches and the list itself
+     * is written with the last batch, so a receiving user never sees a partially written list. If a batch fails,
+     * the entries of the previous batches are removed again.
      *
-     * @param list  List to share.
-     * @param email Email to identify the receiving party.
+     * @param list     List to share.
+     * @param emails   Emails to identify the receiving parties.
+     * @param mode     Whether the receiving parties get a copy or edit the list together.
+     * @param context  The application context.
+     * @param callback Is called with the outcome for every email, after sharing finished.
      */
     @Override
-    public void share(ShoppingList list, String email) {
-        boolean different = checkIfSourceAndDestinationAreDifferent(email);
-        if(!different){
-            return;
+    public void share(ShoppingList list, Set<String> emails, ShareMode mode, Context context, Consumer<Map<String, ShareResult>> callback) {
+        Map<String, ShareResult> results = new ConcurrentHashMap<>();
+        RecipientLookup lookup = new RecipientLookup(context);
+        Map<String, Task<String>> lookups = new LinkedHashMap<>();
+        for (String email : emails) {
+            if (isCurrentUser(email)) {
+                results.put(email, ShareResult.SAME_USER);
+            } else {
+                lookups.put(email, lookup.findUserId(email));
+            }
         }
-        Task<QuerySnapshot> userIdByEmail = findUserIdByEmail(email);
-        userIdByEmail.addOnSuccessListener(documentSnapshots -> {
-            String userIdOfReceiver = getUserId(documentSnapshots);
-            Task<Void> addList = addListToUser(list, userIdOfReceiver);
-            addList.addOnSuccessListener(aVoid -> copyDocuments(list, userIdOfReceiver));
-        }).addOnFailureListener(e -> Log.d(SHARER_TAG, Objects.requireNonNull(e.getMessage())));
+        Tasks.whenAllComplete(lookups.values()).continueWithTask(callbacks, resolved -> {
+            Map<String, List<String>> emailsByReceiver = collectReceivers(lookups, results);
+            if (emailsByReceiver.isEmpty()) {
+                return Tasks.forResult(Collections.<String, ShareResult>emptyMap());
+            }
+            List<String> receivers = new ArrayList<>(emailsByReceiver.keySet());
+            Task<Map<String, ShareResult>> shared = mode == ShareMode.LIVE ? shareLive(list, receivers) : copyDocuments(list, receivers);
+            return shared.continueWith(callbacks, task -> {
+                Map<String, ShareResult> resultsByEmail = new HashMap<>();
+                task.getResult().forEach((receiver, result) ->
+                        emailsByReceiver.get(receiver).forEach(email -> resultsByEmail.put(email, result)));
+                return resultsByEmail;
+            });
+        }).addOnCompleteListener(callbacks, task -> {
+            if (task.isSuccessful()) {
+                results.putAll(task.getResult());
+            } else {
+                Log.d(SHARER_TAG, Objects.requireNonNull(task.getException()).getMessage());
+                emails.forEach(email -> results.putIfAbsent(email, ShareResult.FAILED));
+            }
+            report(results);
+            callback.accept(results);
+        });
     }
 
-    private boolean checkIfSourceAndDestinationAreDifferent(String email) {
+    private boolean isCurrentUser(String email) {
         String emailCurrentUser = FirebaseAuth.getInstance().getCurrentUser().getEmail();
-        if(areSameGmailAddress(emailCurrentUser, email)){
+        return emailCurrentUser != null && RecipientLookup.normalize(emailCurrentUser).equals(RecipientLookup.normalize(email));
+    }
+
+    /**
+     * Groups the emails by the resolved user-id, since several spellings might belong to the same user.
+     * Emails, which couldn't be resolved, are added to the results instead.
+     */
+    private Map<String, List<String>> collectReceivers(Map<String, Task<String>> lookups, Map<String, ShareResult> results) {
+        Map<String, List<String>> emailsByReceiver = new LinkedHashMap<>();
+        lookups.forEach((email, lookup) -> {
+            if (!lookup.isSuccessful()) {
+                Log.d(SHARER_TAG, "Could not resolve receiver: " + Objects.requireNonNull(lookup.getException()).getMessage());
+                results.put(email, ShareResult.FAILED);
+            } else if (lookup.getResult() == null) {
+                results.put(email, ShareResult.UNKNOWN_RECEIVER);
+            } else if (lookup.getResult().equals(getUserIdOfSender())) {
+                results.put(email, ShareResult.SAME_USER);
+            } else {
+                emailsByReceiver.computeIfAbsent(lookup.getResult(), receiver -> new ArrayList<>()).add(email);
+            }
+        });
+        return emailsByReceiver;
+    }
+
+    private String getUserIdOfSender() {
+        return UserReferences.current().getUserId();
+    }
+
+    /**
+     * The entries are read once from the server, since the cache might lack entries, which other members added.
+     * Afterwards the receivers are split into lanes, which are written in parallel,
+     * while the receivers within a lane are written one after another.
+     */
+    private Task<Map<String, ShareResult>> copyDocuments(ShoppingList list, List<String> receivers) {
+        Query entriesQuery = getListRef(list).collection(ENTRIES_KEY);
+        return ReadPolicy.SERVER_THEN_CACHE.get(entriesQuery).continueWithTask(callbacks, read -> {
+            if (!read.isSuccessful()) {
+                Log.d(SHARER_TAG, Objects.requireNonNull(read.getException()).getMessage());
+                return Tasks.forResult(resultsFor(receivers, ShareResult.FAILED));
+            }
+            List<ShoppingEntry> entries = read.getResult().toObjects(ShoppingEntry.class);
+            Map<String, ShareResult> results = new ConcurrentHashMap<>();
+            List<Task<Void>> lanes = new ArrayList<>();
+            for (int lane = 0; lane < Math.min(MAX_PARALLEL_RECEIVERS, receivers.size()); lane++) {
+                Task<Void> copies = Tasks.forResult(null);
+                for (int i = lane; i < receivers.size(); i += MAX_PARALLEL_RECEIVERS) {
+                    String receiver = receivers.get(i);
+                    copies = copies.continueWithTask(callbacks, previous -> copyTo(list, entries, receiver, results));
+                }
+                lanes.add(copies);
+            }
+            return Tasks.whenAll(lanes).continueWith(callbacks, done -> results);
+        });
+    }
+
+    private Task<Void> copyTo(ShoppingList list, List<ShoppingEntry> entries, String receiver, Map<String, ShareResult> results) {
+        DocumentReference receiverListRef = getListsRootCollectionRef(receiver).document(list.getUid());
+        ShoppingList copy = new ShoppingList(list);
+        copy.setShared(false);
+        return commitInBatches(entries, receiverListRef.collection(ENTRIES_KEY), batch -> batch.set(receiverListRef, copy))
+                .continueWith(callbacks, task -> {
+                    if (task.isSuccessful()) {
+                        results.put(receiver, ShareResult.SHARED);
+                    } else {
+                        Log.d(SHARER_TAG, Objects.requireNonNull(task.getException()).getMessage());
+                        results.put(receiver, ShareResult.FAILED);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * All receivers become members at once, so there's a single write, no matter how many receivers there are.
+     */
+    private Task<Map<String, ShareResult>> shareLive(ShoppingList list, List<String> receivers) {
+        Task<Void> shared;
+        if (list.isShared()) {
+            shared = getListRef(list).update(MEMBERS_PROPERTY, FieldValue.arrayUnion(receivers.toArray()));
+        } else {
+            shared = moveToSharedLists(list, receivers);
+        }
+        return shared.continueWith(callbacks, task -> {
+            if (task.isSuccessful()) {
+                Log.d(SHARER_TAG, "Success: Added " + receivers.size() + " members to shared list");
+                return resultsFor(receivers, ShareResult.SHARED);
+            }
+            Log.d(SHARER_TAG, Objects.requireNonNull(task.getException()).getMessage());
+            return resultsFor(receivers, ShareResult.FAILED);
+        });
+    }
+
+    /**
+     * Moves a list out of the user-directory, so that it exists only once for all members.
+     * The own list is deleted within the last batch, so the list is never displayed twice.
+     * The images are neither acquired nor released, since every entry still exists exactly once.
+     * But they're pinned, since the other members can reference them afterwards.
+     */
+    private Task<Void> moveToSharedLists(ShoppingList list, List<String> receivers) {
+        DocumentReference ownListRef = UserReferences.current().getListsRoot().document(list.getUid());
+        DocumentReference sharedListRef = getSharedListsCollectionRef().document(list.getUid());
+        Task<DocumentSnapshot> ownList = ownListRef.get();
+        Task<QuerySnapshot> ownEntries = ownListRef.collection(ENTRIES_KEY).get();
+        return Tasks.whenAllSuccess(ownList, ownEntries)
+                .onSuccessTask(callbacks, results -> {
+                    ShoppingList current = ownList.getResult().toObject(ShoppingList.class);
+                    ShoppingList sharedList = new ShoppingList(current == null ? list : current);
+                    sharedList.setShared(true);
+                    List<String> members = new ArrayList<>();
+                    members.add(getUserIdOfSender());
+                    members.addAll(receivers);
+                    List<ShoppingEntry> entries = ownEntries.getResult().toObjects(ShoppingEntry.class);
+                    return commitInBatches(entries, sharedListRef.collection(ENTRIES_KEY), batch -> {
+                        batch.set(sharedListRef, sharedList);
+                        batch.update(sharedListRef, MEMBERS_PROPERTY, members);
+                        batch.delete(ownListRef);
+                    }).addOnSuccessListener(callbacks, aVoid ->
+                            removeEntries(ownListRef.collection(ENTRIES_KEY), partition(entries, MAX_WRITES_PER_BATCH)));
+                });
+    }
+
+    private Map<String, ShareResult> resultsFor(List<String> receivers, ShareResult result) {
+        Map<String, ShareResult> results = new HashMap<>();
+        receivers.forEach(receiver -> results.put(receiver, result));
+        return results;
+    }
+
+    /**
+     * Only a single toast can be displayed, so the failures of all receivers are summarized.
+     */
+    private void report(Map<String, ShareResult> results) {
+        List<ShareResult> failures = results.values().stream()
+                .filter(result -> result != ShareResult.SHARED)
+                .collect(Collectors.toList());
+        if (failures.isEmpty()) {
+            return;
+        }
+        if (failures.size() > 1) {
+            toastMaker.prepareToast("Fail: Share List with " + failures.size() + " of " + results.size() + " users");
+        } else if (failures.get(0) == ShareResult.UNKNOWN_RECEIVER) {
+            toastMaker.prepareToast("Fail: Found no user with this email");
+        } else if (failures.get(0) == ShareResult.SAME_USER) {
             toastMaker.prepareToast("You cannot share with yourself.");
-            return false;
+        } else {
+            toastMaker.prepareToast("Fail: Share List");
         }
-        return true;
     }
 
-    private boolean areSameGmailAddress(String emailCurrentUser, String email) {
-        int endNameCurrentUser = emailCurrentUser.indexOf("@");
-        int endName = email.indexOf("@");
-        String currentUserEmailName = emailCurrentUser.substring(0, endNameCurrentUser);
-        String emailName = email.substring(0, endName);
-        return currentUserEmailName.equals(emailName);
+    /**
+     * Commits the batches one after another, so that it's known which entries have to be removed, if a batch fails.
+     * The images of the entries are pinned, since they're referenced by other users afterwards.
+     *
+     * @param entries    The entries to write.
+     * @param target     The collection, the entries are written to.
+     * @param listWrites Adds the writes of the list itself to the last batch. At most {@link #MAX_LIST_WRITES}.
+     * @return Returns a task, which completes after the last batch was committed.
+     */
+    private Task<Void> commitInBatches(List<ShoppingEntry> entries, CollectionReference target, Consumer<WriteBatch> listWrites) {
+        List<List<ShoppingEntry>> chunks = partition(entries, (MAX_WRITES_PER_BATCH - MAX_LIST_WRITES) / MAX_WRITES_PER_ENTRY);
+        AtomicInteger committedChunks = new AtomicInteger();
+        Task<Void> commits = Tasks.forResult(null);
+        for (int i = 0; i < chunks.size(); i++) {
+            List<ShoppingEntry> chunk = chunks.get(i);
+            boolean withList = i == chunks.size() - 1;
+            commits = commits
+                    .onSuccessTask(callbacks, aVoid -> buildBatch(chunk, target, withList ? listWrites : null).commit())
+                    .onSuccessTask(callbacks, aVoid -> {
+                        committedChunks.incrementAndGet();
+                        return Tasks.<Void>forResult(null);
+                    });
+        }
+        return commits.continueWithTask(callbacks, task -> {
+            if (task.isSuccessful()) {
+                Log.d(SHARER_TAG, "Success: Wrote list with " + entries.size() + " entries in " + chunks.size() + " batches");
+            } else {
+                removeEntries(target, chunks.subList(0, committedChunks.get()));
+            }
+            return task;
+        });
     }
 
-    private String getUserId(QuerySnapshot documentSnapshots) {
-        DocumentSnapshot documentSnapshot = documentSnapshots.getDocuments().get(0);
-        return documentSnapshot.getId();
+    private WriteBatch buildBatch(List<ShoppingEntry> entries, CollectionReference target, Consumer<WriteBatch> listWrites) {
+        WriteBatch batch = FirebaseFirestore.getInstance().batch();
+        for (ShoppingEntry entry : entries) {
+            batch.set(target.document(entry.getUid()), entry);
+            references.pin(batch, entry);
+        }
+        if (listWrites != null) {
+            listWrites.accept(batch);
+        }
+        return batch;
     }
 
-    private String getUserIdOfSender() {
-        return FirebaseAuth.getInstance().getUid();
+    /**
+     * Removes the entries of already committed batches. Without the list, they aren't visible, but occupy storage.
+     * The pins of their images are kept, since it's unknown, whether the images were shared before.
+     */
+    private void removeEntries(CollectionReference target, List<List<ShoppingEntry>> committedChunks) {
+        for (List<ShoppingEntry> chunk : committedChunks) {
+            WriteBatch batch = FirebaseFirestore.getInstance().batch();
+            for (ShoppingEntry entry : chunk) {
+                batch.delete(target.document(entry.getUid()));
+            }
+            batch.commit().addOnFailureListener(callbacks, e -> Log.d(SHARER_TAG, "Could not remove entries: " + e.getMessage()));
+        }
     }
 
-    private void copyDocuments(ShoppingList list, String userIdOfReceiver) {
-        getListsRootCollectionRef(getUserIdOfSender()).document(list.getUid()).collection(ENTRIES_KEY).get()
-                .addOnSuccessListener(documentSnapshots ->
-                        documentSnapshots.getDocuments().stream()
-                                .map(doc -> doc.toObject(ShoppingEntry.class))
-                                .forEach(shoppingEntry -> addEntryToUser(list, shoppingEntry, userIdOfReceiver))
-                ).addOnFailureListener(e -> Log.d(SHARER_TAG, Objects.requireNonNull(e.getMessage())));
+    private List<List<ShoppingEntry>> partition(List<ShoppingEntry> entries, int chunkSize) {
+        List<List<ShoppingEntry>> chunks = new ArrayList<>();
+        for (int start = 0; start < entries.size(); start += chunkSize) {
+            chunks.add(entries.subList(start, Math.min(start + chunkSize, entries.size())));
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(new ArrayList<>());
+        }
+        return chunks;
     }
 
-    private void addEntryToUser(ShoppingList list, ShoppingEntry shoppingEntry, String userId) {
-        DocumentReference newEntryRef = getListsRootCollectionRef(userId).document(list.getUid()).collection(ENTRIES_KEY).document(shoppingEntry.getUid());
-        newEntryRef.set(shoppingEntry).addOnSuccessListener(aVoid -> {
-            Log.d(SHARER_TAG, "Copied doc to user");
-        });
+    private DocumentReference getListRef(ShoppingList list) {
+        if (list.isShared()) {
+            return getSharedListsCollectionRef().document(list.getUid());
+        }
+        return UserReferences.current().getListsRoot().document(list.getUid());
     }
 
-    private Task<Void> addListToUser(ShoppingList list, String userId) {
-        return getListsRootCollectionRef(userId).document(list.getUid()).set(list);
+    private CollectionReference getSharedListsCollectionRef() {
+        return FirebaseFirestore.getInstance().collection(SHARED_LISTS_KEY);
     }
 
     private CollectionReference getListsRootCollectionRef(String userId) {
         return FirebaseFirestore.getInstance().collection(USER_ROOT_KEY).document(userId).collection(LISTS_ROOT_KEY);
     }
-
-    private Task<QuerySnapshot> findUserIdByEmail(String email) {
-        CollectionReference usersCollection = FirebaseFirestore.getInstance().collection(USERS_KEY);
-        return usersCollection.whereEqualTo(EMAIL_PROPERTY, email).get();
-    }
 }
@@ -2,6 +2,8 @@ package de.db.shoppinglist.database;
 
 import android.net.Uri;
 
+import java.io.File;
+
 public interface ImageCompressor {
 
     /**
@@ -13,4 +15,46 @@ public interface ImageCompressor {
      * @return Returns bytes of the compressed image. If image was for some reason not compressable, null.
      */
     byte[] compress(Uri imageUri, int quality);
+
+    /**
+     * Compresses an image directly into a file inside the cache-directory of the app.
+     * In contrast to {@link #compress(Uri, int)} the compressed image is never held in memory.
+     * But there's no guarantee of success. If so, null is returned.
+     * @param imageUri Device-intern uri of the image.
+     * @param quality The quality of the image, remained after compression.
+     * @return Returns the file containing the compressed image. If image was for some reason not compressable, null.
+     */
+    File compressToFile(Uri imageUri, int quality);
+
+    /**
+     * Compresses an image into a file inside the cache-directory of the app, which is not larger
+     * than the given budget. Format and quality are chosen by the implementation, so that the
+     * result lands as close as possible below the budget.
+     * But there's no guarantee of success. If so, null is returned.
+     * @param imageUri Device-intern uri of the image.
+     * @param maxBytes The maximum size of the compressed image in bytes.
+     * @return Returns the file containing the compressed image. If image was for some reason not compressable, null.
+     */
+    File compressToTargetSize(Uri imageUri, long maxBytes);
+
+    /**
+     * Compresses an image like {@link #compressToTargetSize(Uri, long)} and additionally creates
+     * a small thumbnail and a BlurHash of it, e.g. for displaying it within lists.
+     * But there's no guarantee of success. If so, null is returned.
+     * @param imageUri Device-intern uri of the image.
+     * @param maxBytes The maximum size of the compressed image in bytes.
+     * @param maxThumbnailBytes The maximum size of the thumbnail in bytes.
+     * @return Returns both renditions. If image was for some reason not compressable, null.
+     *         If only the thumbnail failed, the result contains no thumbnail.
+     */
+    CompressedImage compressWithThumbnail(Uri imageUri, long maxBytes, long maxThumbnailBytes);
+
+    /**
+     * Replaces a freshly captured photo by a down-sampled copy in the right orientation, so that
+     * the photo is decoded in full resolution only once. Afterwards the compression of the photo
+     * gets a small file, which doesn't need to be rotated anymore.
+     * @param image The captured photo inside the cache-directory of the app.
+     * @return Returns true, if the photo was replaced. Otherwise the file remains unchanged.
+     */
+    boolean downsizeInPlace(File image);
 }
@@ -2,28 +2,68 @@ package de.db.shoppinglist.database;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Matrix;
 import android.media.ExifInterface;
 import android.net.Uri;
-import android.provider.MediaStore;
+import android.os.Build;
+import android.util.Log;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import de.db.shoppinglist.utility.BlurHash;
 
 /**
  * This class allows to compress images to JPEG.
+ * The image is read from a single stream: the orientation is taken from the EXIF-header,
+ * the image is decoded down-sampled and the rotation is applied to the already reduced bitmap.
+ * Subclasses may offer further formats for {@link #compressToTargetSize(Uri, long)}
+ * by overriding {@link #getCandidateFormats()}.
  */
 public class ImageCompressorToJPEG implements ImageCompressor {
 
+    private static final String COMPRESSOR_TAG = "ImageCompressor";
+    /** The longer side of a compressed image will not exceed this number of pixels.*/
+    public static final int MAX_DIMENSION = 1280;
+    /** The longer side of a thumbnail will not exceed this number of pixels.*/
+    public static final int THUMBNAIL_DIMENSION = 256;
+    /** Number of cosine-components of the BlurHash. More components are more detailed, but longer.*/
+    private static final int PLACEHOLDER_COMPONENTS_X = 4;
+    private static final int PLACEHOLDER_COMPONENTS_Y = 3;
     private static final int BY_90_DEGREE = 90;
     private static final int BY_180_DEGREE = 180;
     private static final int BY_270_DEGREE = 270;
+    /** Size of the buffer, which allows to rewind the stream after the header was read.*/
+    private static final int MARK_LIMIT = 1024 * 1024;
+    /** Name of the folder inside the cache-directory, containing the compressed images.*/
+    public static final String IMAGE_CACHE_FOLDER = "compressed_images";
+    private static final int MIN_QUALITY = 10;
+    private static final int MAX_QUALITY = 90;
+    /** Quality, at which the candidate formats are compared with each other.*/
+    private static final int PROBE_QUALITY = 70;
+    private static final int NO_QUALITY_FITS = -1;
+    /** Number of encodes after the probe, which may be spent on finding the quality and the size.*/
+    private static final int MAX_ESTIMATED_ENCODES = 4;
+    /** The estimates aim a bit below the budget, since the encoded size isn't exactly linear.*/
+    private static final double SAFETY_MARGIN = 0.9;
+    private static final String JPEG_EXTENSION = ".jpg";
+    private static final String WEBP_EXTENSION = ".webp";
+    private static final String DOWNSIZED_SUFFIX = ".downsized";
     private Context context;
 
     /**
      * Creates an instance of ImageCompressor.
-     * @param context
+     * @param context Context, which resolves the device-intern uris.
      */
     public ImageCompressorToJPEG(Context context) {
         this.context = context;
@@ -41,59 +81,446 @@ public class ImageCompressorToJPEG implements ImageCompressor {
     public byte[] compress(Uri imageUri, int quality) {
         byte[] compressed = null;
         try {
-            Bitmap bitmap = MediaStore.Images.Media.getBitmap(context.getContentResolver(), imageUri);
-            Bitmap rotatedBitmap;
-            int orientation = getOrientation(imageUri);
-            rotatedBitmap = rotateBitmap(bitmap, orientation);
-            compressed = compress(quality, rotatedBitmap);
-            bitmap.recycle();
-            rotatedBitmap.recycle();
+            Bitmap bitmap = decodeRotated(imageUri);
+            if (bitmap != null) {
+                compressed = compress(quality, bitmap);
+                bitmap.recycle();
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.d(COMPRESSOR_TAG, "Could not compress " + imageUri + ": " + e.getMessage());
         }
         return compressed;
     }
 
     private byte[] compress(int quality, Bitmap rotatedBitmap) {
-        byte[] compressedImageBytes = null;
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         rotatedBitmap.compress(Bitmap.CompressFormat.JPEG, quality, baos);
-        compressedImageBytes = baos.toByteArray();
-        return compressedImageBytes;
+        return baos.toByteArray();
     }
 
-    private Bitmap rotateBitmap(Bitmap bitmap, int orientation) {
-        Bitmap rotatedBitmap;
+    /**
+     * Compresses an image directly into a file inside the cache-directory of the app.
+     * The encoder writes straight into the file, so the compressed image is never held in memory.
+     * But there's no guarantee of success. If so, null is returned.
+     * @param imageUri Device-intern uri of the image.
+     * @param quality The quality of the image, remained after compression.
+     * @return Returns the file containing the compressed image. If image was for some reason not compressable, null.
+     */
+    @Override
+    public File compressToFile(Uri imageUri, int quality) {
+        File target = null;
+        Bitmap bitmap = null;
+        try {
+            bitmap = decodeRotated(imageUri);
+            if (bitmap != null) {
+                target = createCacheFile(JPEG_EXTENSION);
+                writeToFile(bitmap, Bitmap.CompressFormat.JPEG, quality, target);
+            }
+        } catch (IOException e) {
+            Log.d(COMPRESSOR_TAG, "Could not compress " + imageUri + ": " + e.getMessage());
+            deleteQuietly(target);
+            target = null;
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Compresses an image into a file inside the cache-directory of the app, which is not larger
+     * than the given budget. The format is chosen from {@link #getCandidateFormats()}, preferring
+     * the one, which encodes this image smallest. The size of this probe estimates the quality,
+     * which fits into the budget. If even the lowest quality is too large, the image is scaled down
+     * by the factor, which the sizes suggest. The number of encodes is bounded, usually 2-3 are needed.
+     * But there's no guarantee of success. If so, null is returned.
+     * @param imageUri Device-intern uri of the image.
+     * @param maxBytes The maximum size of the compressed image in bytes.
+     * @return Returns the file containing the compressed image. If image was for some reason not compressable, null.
+     */
+    @Override
+    public File compressToTargetSize(Uri imageUri, long maxBytes) {
+        File target = null;
+        Bitmap bitmap = null;
+        try {
+            bitmap = decodeRotated(imageUri);
+            if (bitmap != null) {
+                target = encodeToTargetSize(bitmap, maxBytes);
+            }
+        } catch (IOException e) {
+            Log.d(COMPRESSOR_TAG, "Could not compress " + imageUri + ": " + e.getMessage());
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Compresses an image like {@link #compressToTargetSize(Uri, long)} and additionally creates
+     * a thumbnail, whose longer side is {@link #THUMBNAIL_DIMENSION} pixels, and a BlurHash.
+     * All of them are created from a single decode of the image.
+     * But there's no guarantee of success. If so, null is returned.
+     * @param imageUri Device-intern uri of the image.
+     * @param maxBytes The maximum size of the compressed image in bytes.
+     * @param maxThumbnailBytes The maximum size of the thumbnail in bytes.
+     * @return Returns both renditions. If image was for some reason not compressable, null.
+     *         If only the thumbnail failed, the result contains no thumbnail.
+     */
+    @Override
+    public CompressedImage compressWithThumbnail(Uri imageUri, long maxBytes, long maxThumbnailBytes) {
+        CompressedImage result = null;
+        Bitmap bitmap = null;
+        try {
+            bitmap = decodeRotated(imageUri);
+            if (bitmap != null) {
+                throwIfCancelled();
+                File image = encodeToTargetSize(bitmap, maxBytes);
+                File thumbnail = createThumbnail(bitmap, maxThumbnailBytes);
+                if (Thread.currentThread().isInterrupted()) {
+                    deleteQuietly(image);
+                    deleteQuietly(thumbnail);
+                    throwIfCancelled();
+                }
+                String placeholder = BlurHash.encode(bitmap, PLACEHOLDER_COMPONENTS_X, PLACEHOLDER_COMPONENTS_Y);
+                result = new CompressedImage(image, thumbnail, placeholder);
+            }
+        } catch (IOException e) {
+            Log.d(COMPRESSOR_TAG, "Could not compress " + imageUri + ": " + e.getMessage());
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces a freshly captured photo by a copy, whose longer side is at most {@link #MAX_DIMENSION} pixels,
+     * encoded as JPEG at the highest quality used for compression. The copy contains no EXIF-orientation,
+     * since the rotation is already applied to the pixels.
+     * @param image The captured photo inside the cache-directory of the app.
+     * @return Returns true, if the photo was replaced. Otherwise the file remains unchanged.
+     */
+    @Override
+    public boolean downsizeInPlace(File image) {
+        File downsized = new File(image.getParentFile(), image.getName() + DOWNSIZED_SUFFIX);
+        Bitmap bitmap = null;
+        try {
+            bitmap = decodeRotated(Uri.fromFile(image));
+            if (bitmap == null) {
+                return false;
+            }
+            writeToFile(bitmap, Bitmap.CompressFormat.JPEG, MAX_QUALITY, downsized);
+            if (!downsized.renameTo(image)) {
+                throw new IOException("Failed to replace " + image.getName());
+            }
+            return true;
+        } catch (IOException e) {
+            Log.d(COMPRESSOR_TAG, "Could not downsize " + image.getName() + ": " + e.getMessage());
+            deleteQuietly(downsized);
+            return false;
+        } finally {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    private File createThumbnail(Bitmap bitmap, long maxThumbnailBytes) {
+        Bitmap thumbnail = scaleToDimension(bitmap, THUMBNAIL_DIMENSION);
+        try {
+            return encodeToTargetSize(thumbnail, maxThumbnailBytes);
+        } catch (IOException e) {
+            Log.d(COMPRESSOR_TAG, "Could not create thumbnail: " + e.getMessage());
+            return null;
+        } finally {
+            if (thumbnail != bitmap) {
+                thumbnail.recycle();
+            }
+        }
+    }
+
+    /**
+     * Encodes the bitmap into a file, which is not larger than the given budget.
+     * The encoded size grows roughly linearly with the quality and the number of pixels,
+     * so every measured size estimates the next quality or scale to try.
+     * The given bitmap is neither modified nor recycled.
+     */
+    private File encodeToTargetSize(Bitmap bitmap, long maxBytes) throws IOException {
+        Bitmap.CompressFormat format = null;
+        long size = Long.MAX_VALUE;
+        for (Bitmap.CompressFormat candidateFormat : getCandidateFormats()) {
+            long probeSize = getEncodedSize(bitmap, candidateFormat, PROBE_QUALITY);
+            if (probeSize < size) {
+                size = probeSize;
+                format = candidateFormat;
+            }
+        }
+        Bitmap candidate = bitmap;
+        try {
+            int quality = PROBE_QUALITY;
+            int fittingQuality = size <= maxBytes ? quality : NO_QUALITY_FITS;
+            int exceedingQuality = size <= maxBytes ? MAX_QUALITY + 1 : quality;
+            for (int encodes = 0; encodes < MAX_ESTIMATED_ENCODES; encodes++) {
+                throwIfCancelled();
+                int estimated = Math.min(estimateQuality(quality, size, maxBytes), exceedingQuality - 1);
+                if (estimated < MIN_QUALITY) {
+                    Bitmap scaled = downscale(candidate, estimateScale(quality, size, maxBytes));
+                    if (candidate != bitmap) {
+                        candidate.recycle();
+                    }
+                    candidate = scaled;
+                    quality = MIN_QUALITY;
+                    exceedingQuality = MAX_QUALITY + 1;
+                    fittingQuality = NO_QUALITY_FITS;
+                } else if (estimated > fittingQuality) {
+                    quality = estimated;
+                } else {
+                    break;
+                }
+                size = getEncodedSize(candidate, format, quality);
+                if (size <= maxBytes) {
+                    fittingQuality = Math.max(fittingQuality, quality);
+                } else {
+                    exceedingQuality = Math.min(exceedingQuality, quality);
+                }
+            }
+            if (fittingQuality == NO_QUALITY_FITS) {
+                fittingQuality = MIN_QUALITY;
+            }
+            File target = createCacheFile(getExtension(format));
+            try {
+                writeToFile(candidate, format, fittingQuality, target);
+            } catch (IOException e) {
+                deleteQuietly(target);
+                throw e;
+            }
+            return target;
+        } finally {
+            if (candidate != bitmap) {
+                candidate.recycle();
+            }
+        }
+    }
+
+    /**
+     * Estimates the highest quality, which fits into the budget, from the size of an encode at another quality.
+     * The result might be lower than {@link #MIN_QUALITY}, but never higher than {@link #MAX_QUALITY}.
+     */
+    private int estimateQuality(int quality, long size, long maxBytes) {
+        double estimated = quality * maxBytes * SAFETY_MARGIN / size;
+        return (int) Math.min(MAX_QUALITY, Math.floor(estimated));
+    }
+
+    /**
+     * Estimates the factor, by which the sides have to shrink, so that the lowest quality fits into the budget.
+     * The size depends on the number of pixels, so the factor is the square root of the size ratio.
+     */
+    private float estimateScale(int quality, long size, long maxBytes) {
+        double sizeAtMinQuality = (double) size * MIN_QUALITY / quality;
+        return (float) Math.min(1.0, Math.sqrt(maxBytes * SAFETY_MARGIN / sizeAtMinQuality));
+    }
+
+    /**
+     * Returns all formats, which {@link #compressToTargetSize(Uri, long)} may choose from.
+     * @return Returns the candidate formats. This class supports only JPEG.
+     */
+    protected List<Bitmap.CompressFormat> getCandidateFormats() {
+        return Collections.singletonList(Bitmap.CompressFormat.JPEG);
+    }
+
+    /**
+     * Returns the lossy WebP-format, matching the current platform.
+     * @return Returns the lossy WebP-format.
+     */
+    @SuppressWarnings("deprecation")
+    protected static Bitmap.CompressFormat getWebPFormat() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return Bitmap.CompressFormat.WEBP_LOSSY;
+        }
+        return Bitmap.CompressFormat.WEBP;
+    }
+
+    private long getEncodedSize(Bitmap bitmap, Bitmap.CompressFormat format, int quality) {
+        ByteCountingOutputStream counter = new ByteCountingOutputStream();
+        bitmap.compress(format, quality, counter);
+        return counter.getCount();
+    }
+
+    private Bitmap downscale(Bitmap bitmap, float scale) {
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        return Bitmap.createScaledBitmap(bitmap, width, height, true);
+    }
+
+    private Bitmap scaleToDimension(Bitmap bitmap, int maxDimension) {
+        int longerSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longerSide <= maxDimension) {
+            return bitmap;
+        }
+        float scale = (float) maxDimension / longerSide;
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        return Bitmap.createScaledBitmap(bitmap, width, height, true);
+    }
+
+    private String getExtension(Bitmap.CompressFormat format) {
+        if (format == Bitmap.CompressFormat.JPEG) {
+            return JPEG_EXTENSION;
+        }
+        return WEBP_EXTENSION;
+    }
+
+    private void writeToFile(Bitmap bitmap, Bitmap.CompressFormat format, int quality, File target) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(target)) {
+            if (!bitmap.compress(format, quality, outputStream)) {
+                throw new IOException("Failed to encode image into " + target.getName());
+            }
+        }
+    }
+
+    private File createCacheFile(String extension) throws IOException {
+        File folder = new File(context.getCacheDir(), IMAGE_CACHE_FOLDER);
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            throw new IOException("Failed to create " + folder.getAbsolutePath());
+        }
+        return new File(folder, UUID.randomUUID() + extension);
+    }
+
+    /**
+     * Compression runs on a background-thread, which is interrupted if the result isn't needed anymore.
+     * The expensive steps are skipped in this case.
+     */
+    private void throwIfCancelled() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Compression was cancelled");
+        }
+    }
+
+    private void deleteQuietly(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Decodes the image down-sampled to {@link #MAX_DIMENSION} and in the right orientation.
+     * The content is opened only once. Header and EXIF-data are read from a buffered stream,
+     * which is rewound afterwards.
+     *
+     * @param imageUri Device-intern uri of the image.
+     * @return Returns the decoded bitmap or null, if the image could not be decoded.
+     * @throws IOException If the image can't be read.
+     */
+    private Bitmap decodeRotated(Uri imageUri) throws IOException {
+        InputStream source = context.getContentResolver().openInputStream(imageUri);
+        if (source == null) {
+            return null;
+        }
+        try (InputStream inputStream = new BufferedInputStream(source)) {
+            inputStream.mark(MARK_LIMIT);
+            int orientation = getOrientation(inputStream);
+            inputStream.reset();
+            inputStream.mark(MARK_LIMIT);
+            BitmapFactory.Options options = readBounds(inputStream);
+            inputStream.reset();
+            options.inSampleSize = calculateSampleSize(options.outWidth, options.outHeight);
+            options.inJustDecodeBounds = false;
+            Bitmap sampled = BitmapFactory.decodeStream(inputStream, null, options);
+            if (sampled == null) {
+                return null;
+            }
+            return scaleAndRotate(sampled, orientation);
+        }
+    }
+
+    private BitmapFactory.Options readBounds(InputStream inputStream) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeStream(inputStream, null, options);
+        return options;
+    }
+
+    private int calculateSampleSize(int width, int height) {
+        int sampleSize = 1;
+        int longerSide = Math.max(width, height);
+        while (longerSide / (sampleSize * 2) >= MAX_DIMENSION) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Applies the remaining scaling and the rotation in a single step,
+     * so that at most one further bitmap of the reduced size is allocated.
+     */
+    private Bitmap scaleAndRotate(Bitmap bitmap, int orientation) {
+        Matrix matrix = new Matrix();
+        float scale = getRemainingScale(bitmap);
+        if (scale < 1f) {
+            matrix.postScale(scale, scale);
+        }
+        int degrees = getRotationInDegrees(orientation);
+        if (degrees != 0) {
+            matrix.postRotate(degrees);
+        }
+        if (matrix.isIdentity()) {
+            return bitmap;
+        }
+        Bitmap transformed = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (transformed != bitmap) {
+            bitmap.recycle();
+        }
+        return transformed;
+    }
+
+    private float getRemainingScale(Bitmap bitmap) {
+        int longerSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        return Math.min(1f, (float) MAX_DIMENSION / longerSide);
+    }
+
+    private int getRotationInDegrees(int orientation) {
         switch (orientation) {
             case ExifInterface.ORIENTATION_ROTATE_90:
-                rotatedBitmap = rotateImage(bitmap, BY_90_DEGREE);
-                break;
-
+                return BY_90_DEGREE;
             case ExifInterface.ORIENTATION_ROTATE_180:
-                rotatedBitmap = rotateImage(bitmap, BY_180_DEGREE);
-                break;
-
+                return BY_180_DEGREE;
             case ExifInterface.ORIENTATION_ROTATE_270:
-                rotatedBitmap = rotateImage(bitmap, BY_270_DEGREE);
-                break;
-
+                return BY_270_DEGREE;
             case ExifInterface.ORIENTATION_NORMAL:
             default:
-                rotatedBitmap = bitmap;
+                return 0;
         }
-        return rotatedBitmap;
     }
 
-    private int getOrientation(Uri imageUri) throws IOException {
-        InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
+    private int getOrientation(InputStream inputStream) throws IOException {
         ExifInterface ei = new ExifInterface(inputStream);
         return ei.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
     }
 
-    private Bitmap rotateImage(Bitmap source, float angle) {
-        Matrix matrix = new Matrix();
-        matrix.postRotate(angle);
-        return Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
-    }
+    /**
+     * Discards all written bytes and only counts them.
+     * Allows to determine the size of an encoded image, without holding it in memory.
+     */
+    private static class ByteCountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
 
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
 }
@@ -0,0 +1,33 @@
+package de.db.shoppinglist.database;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class allows to compress images to a target size.
+ * In contrast to {@link ImageCompressorToJPEG} it chooses between WebP and JPEG,
+ * whichever encodes the given image smaller.
+ * Compressing with a fixed quality still results in JPEG.
+ */
+public class ImageCompressorToSmallestFormat extends ImageCompressorToJPEG {
+
+    /**
+     * Creates an instance of ImageCompressor.
+     * @param context Context, which resolves the device-intern uris.
+     */
+    public ImageCompressorToSmallestFormat(Context context) {
+        super(context);
+    }
+
+    /**
+     * {@inheritDoc}
+     * @return Returns WebP and JPEG.
+     */
+    @Override
+    protected List<Bitmap.CompressFormat> getCandidateFormats() {
+        return Arrays.asList(getWebPFormat(), Bitmap.CompressFormat.JPEG);
+    }
+}
@@ -0,0 +1,264 @@
+package de.db.shoppinglist.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+import de.db.shoppinglist.utility.AppExecutors;
+
+import static de.db.shoppinglist.database.FirebaseSource.ENTRIES_KEY;
+import static de.db.shoppinglist.database.FirebaseSource.IMAGE_URI_PROPERTY;
+import static de.db.shoppinglist.database.FirebaseSource.REF_COUNT_PROPERTY;
+import static de.db.shoppinglist.database.FirebaseSource.REF_UPDATED_PROPERTY;
+import static de.db.shoppinglist.database.FirebaseSource.THUMBNAIL_URI_PROPERTY;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * This class deletes own images from firebase storage, which are not referenced anymore.
+ * The mark-phase happens continuously: {@link ImageReferences} counts the references of every own image.
+ * The sweep-phase runs at most once a day per user and checks images, whose counter dropped to zero,
+ * in batches. Images are kept for a grace period after their last change,
+ * so that an image, which is just about to be referenced again, is not deleted.
+ * Before an image is deleted, the references are counted again on the server. Only the data, which the user
+ * may read anyway, is searched: the entries of the own and the shared lists and the own history.
+ * Images, which are referenced by other users, are pinned and never deleted, since those references
+ * can't be searched. Images of other users or stored under a random name are never deleted either.
+ */
+class ImageGarbageCollector {
+
+    private static final String PREFERENCES_NAME = "image_garbage_collector";
+    private static final String LAST_SWEEP_KEY = "lastSweep_";
+    private static final String COLLECTOR_TAG = "ImageGarbageCollector";
+    private static final long SWEEP_INTERVAL_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final long GRACE_PERIOD_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_BATCHES_PER_SWEEP = 5;
+
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
+    private final FirebaseSource source;
+    private final SharedPreferences preferences;
+
+    /**
+     * Creates a new garbage collector.
+     *
+     * @param source  The source, which defines the queries of the lists. Not null.
+     * @param context The application context.
+     */
+    ImageGarbageCollector(FirebaseSource source, Context context) {
+        this.source = source;
+        preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Deletes unreferenced images of the signed-in user, if the last sweep happened more than a day ago.
+     */
+    void collectIfDue() {
+        if (!UserReferences.isSignedIn()) {
+            return;
+        }
+        UserReferences user = UserReferences.current();
+        String lastSweepKey = LAST_SWEEP_KEY + user.getUserId();
+        long now = System.currentTimeMillis();
+        if (now - preferences.getLong(lastSweepKey, 0) < SWEEP_INTERVAL_MILLIS) {
+            return;
+        }
+        preferences.edit().putLong(lastSweepKey, now).apply();
+        Timestamp deadline = new Timestamp(new Date(now - GRACE_PERIOD_MILLIS));
+        findSearchedCollections(user)
+                .addOnSuccessListener(callbacks, searched -> sweep(user, searched, deadline, 0, null))
+                .addOnFailureListener(callbacks, e -> Log.d(COLLECTOR_TAG, "Could not find lists: " + e.getMessage()));
+    }
+
+    /**
+     * Returns the collections, which may reference own images: the entries of the own and the shared lists
+     * and the history. The lists are read from the server, so that no list is missed.
+     */
+    private Task<List<CollectionReference>> findSearchedCollections(UserReferences user) {
+        return Tasks.<QuerySnapshot>whenAllSuccess(
+                source.getListsRootCollectionRef().get(com.google.firebase.firestore.Source.SERVER),
+                source.getSharedListsQuery().get(com.google.firebase.firestore.Source.SERVER))
+                .onSuccessTask(callbacks, lists -> {
+                    List<CollectionReference> searched = new ArrayList<>();
+                    lists.forEach(snapshots -> snapshots.getDocuments()
+                            .forEach(list -> searched.add(list.getReference().collection(ENTRIES_KEY))));
+                    searched.add(user.getHistoryRoot());
+                    return Tasks.forResult(searched);
+                });
+    }
+
+    private void sweep(UserReferences user, List<CollectionReference> searched, Timestamp deadline,
+                       int batch, DocumentSnapshot lastOfPreviousBatch) {
+        Query unreferenced = user.getImageRefsRoot()
+                .whereLessThanOrEqualTo(REF_COUNT_PROPERTY, 0)
+                .orderBy(REF_COUNT_PROPERTY)
+                .limit(BATCH_SIZE);
+        if (lastOfPreviousBatch != null) {
+            unreferenced = unreferenced.startAfter(lastOfPreviousBatch);
+        }
+        unreferenced.get()
+                .addOnSuccessListener(callbacks, snapshots -> {
+                    List<Task<Void>> deletions = snapshots.getDocuments().stream()
+                            .filter(doc -> isExpired(doc, deadline))
+                            .map(doc -> deleteIfUnreferenced(user, doc.getReference(), searched, deadline))
+                            .collect(toList());
+                    Tasks.whenAllComplete(deletions).addOnSuccessListener(callbacks, tasks -> {
+                        Log.d(COLLECTOR_TAG, "Success: Swept " + deletions.size() + " images");
+                        if (isFull(snapshots) && batch + 1 < MAX_BATCHES_PER_SWEEP) {
+                            sweep(user, searched, deadline, batch + 1, getLast(snapshots));
+                        }
+                    });
+                })
+                .addOnFailureListener(callbacks, e -> Log.d(COLLECTOR_TAG, Objects.requireNonNull(e.getMessage())));
+    }
+
+    private DocumentSnapshot getLast(QuerySnapshot snapshots) {
+        return snapshots.getDocuments().get(snapshots.size() - 1);
+    }
+
+    private boolean isFull(QuerySnapshot snapshots) {
+        return snapshots.size() == BATCH_SIZE;
+    }
+
+    private boolean isExpired(DocumentSnapshot doc, Timestamp deadline) {
+        Long count = doc.getLong(REF_COUNT_PROPERTY);
+        Timestamp updated = doc.getTimestamp(REF_UPDATED_PROPERTY);
+        return count != null && count <= 0 && updated != null && updated.compareTo(deadline) < 0;
+    }
+
+    /**
+     * A pinned image isn't searched, its counter is only removed, so that it isn't checked again on the next sweep.
+     * A counter, which missed references, is corrected, so that the image isn't searched again on the next sweep.
+     */
+    private Task<Void> deleteIfUnreferenced(UserReferences user, DocumentReference counterRef,
+                                            List<CollectionReference> searched, Timestamp deadline) {
+        String name = counterRef.getId();
+        DocumentReference pinRef = user.getPinnedImagesRoot().document(name);
+        return pinRef.get(com.google.firebase.firestore.Source.SERVER).onSuccessTask(callbacks, pin -> {
+            if (pin.exists()) {
+                Log.d(COLLECTOR_TAG, "Kept pinned image " + name);
+                return deleteCounterAndImage(user, counterRef, pinRef, deadline);
+            }
+            return countReferences(user, name, searched).onSuccessTask(callbacks, count -> {
+                if (count == 0) {
+                    return deleteCounterAndImage(user, counterRef, pinRef, deadline);
+                }
+                Log.d(COLLECTOR_TAG, "Kept referenced image " + name);
+                Map<String, Object> counter = new HashMap<>();
+                counter.put(REF_COUNT_PROPERTY, count);
+                counter.put(REF_UPDATED_PROPERTY, FieldValue.serverTimestamp());
+                return counterRef.set(counter, SetOptions.merge());
+            });
+        });
+    }
+
+    /**
+     * Searches the collections on the server for the download-url of the image.
+     * The download-urls of an image only differ in their token, so they are found by their common prefix.
+     * At most one reference is counted per search, since a single reference already prevents the deletion.
+     * An image, which doesn't exist anymore, has no references.
+     */
+    private Task<Long> countReferences(UserReferences user, String name, List<CollectionReference> searched) {
+        return getImageRef(user, name).getDownloadUrl()
+                .continueWithTask(callbacks, downloadUrl -> {
+                    if (!downloadUrl.isSuccessful()) {
+                        if (isNotFound(downloadUrl.getException())) {
+                            return Tasks.forResult(0L);
+                        }
+                        throw Objects.requireNonNull(downloadUrl.getException());
+                    }
+                    String prefix = getUrlWithoutToken(downloadUrl.getResult());
+                    List<Task<QuerySnapshot>> searches = new ArrayList<>();
+                    for (CollectionReference collection : searched) {
+                        for (String property : Arrays.asList(IMAGE_URI_PROPERTY, THUMBNAIL_URI_PROPERTY)) {
+                            searches.add(findReference(collection, property, prefix));
+                        }
+                    }
+                    return Tasks.<QuerySnapshot>whenAllSuccess(searches).onSuccessTask(callbacks, found ->
+                            Tasks.forResult(found.stream().mapToLong(QuerySnapshot::size).sum()));
+                });
+    }
+
+    private Task<QuerySnapshot> findReference(CollectionReference collection, String property, String prefix) {
+        return collection
+                .whereGreaterThanOrEqualTo(property, prefix)
+                .whereLessThan(property, prefix + '\uf8ff')
+                .limit(1)
+                .get(com.google.firebase.firestore.Source.SERVER);
+    }
+
+    /**
+     * The query-part of a download-url contains the token, so every download-url of the image starts with the rest.
+     */
+    private String getUrlWithoutToken(Uri downloadUrl) {
+        return downloadUrl.buildUpon().clearQuery().build().toString() + "?";
+    }
+
+    /**
+     * The counter and the pin are checked and the counter is deleted within a transaction,
+     * so that a concurrent reference is not lost. Afterwards the image itself is deleted, if it isn't pinned.
+     */
+    private Task<Void> deleteCounterAndImage(UserReferences user, DocumentReference counterRef,
+                                             DocumentReference pinRef, Timestamp deadline) {
+        return FirebaseFirestore.getInstance().runTransaction(transaction -> {
+            DocumentSnapshot counter = transaction.get(counterRef);
+            boolean pinned = transaction.get(pinRef).exists();
+            boolean expired = isExpired(counter, deadline);
+            if (expired) {
+                transaction.delete(counterRef);
+            }
+            return expired && !pinned;
+        }).continueWithTask(callbacks, task -> {
+            if (!task.isSuccessful()) {
+                throw Objects.requireNonNull(task.getException());
+            }
+            if (!Boolean.TRUE.equals(task.getResult())) {
+                return Tasks.forResult(null);
+            }
+            return deleteImage(user, counterRef.getId());
+        });
+    }
+
+    private Task<Void> deleteImage(UserReferences user, String name) {
+        return getImageRef(user, name).delete()
+                .continueWithTask(callbacks, task -> {
+                    if (!task.isSuccessful() && !isNotFound(task.getException())) {
+                        Log.d(COLLECTOR_TAG, Objects.requireNonNull(Objects.requireNonNull(task.getException()).getMessage()));
+                        throw Objects.requireNonNull(task.getException());
+                    }
+                    return Tasks.forResult(null);
+                });
+    }
+
+    private StorageReference getImageRef(UserReferences user, String name) {
+        return FirebaseStorage.getInstance().getReference(user.getImageFolder()).child(name);
+    }
+
+    private boolean isNotFound(Exception e) {
+        return e instanceof StorageException && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
+}
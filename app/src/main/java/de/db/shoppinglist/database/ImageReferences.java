@@ -0,0 +1,191 @@
+package de.db.shoppinglist.database;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+import de.db.shoppinglist.model.EntryHistoryElement;
+import de.db.shoppinglist.model.ShoppingEntry;
+import de.db.shoppinglist.utility.AppExecutors;
+
+import static de.db.shoppinglist.database.FirebaseSource.REF_COUNT_PROPERTY;
+import static de.db.shoppinglist.database.FirebaseSource.REF_UPDATED_PROPERTY;
+
+/**
+ * This class counts, how many entries and history-entries of the user reference an image in firebase storage.
+ * Every user stores the images in an own folder and counts their references within the own user-directory,
+ * so the counters and the {@link ImageGarbageCollector} only need access to the data of the user.
+ * Images of other users are neither counted nor deleted.
+ * The counters are changed within the same batch as the entry or history-entry, so a counter never misses
+ * a write, which succeeded. They only preselect the images, which might be unreferenced.
+ * The garbage collector counts the references again before deleting an image.
+ * An image, which is written outside of the user-directory, e.g. into a shared list or a copy for another user,
+ * is pinned, since its references can't be counted anymore. Pinned images are never deleted.
+ * Uris, which don't point to an own image stored under its hash, e.g. device-intern uris, are ignored.
+ */
+class ImageReferences {
+
+    private static final String REFERENCES_TAG = "ImageReferences";
+    private static final String PINNED_PROPERTY = "pinned";
+    /** Images stored under their SHA-256 hash have a name of 64 hex-characters.*/
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
+
+    /**
+     * Counts the images of an entry as used once more.
+     * The images are pinned, if the entry is written outside of the user-directory.
+     *
+     * @param batch    The batch, which writes the entry. Not null.
+     * @param entryRef The document of the entry. Not null.
+     * @param entry    The entry, referencing the images. Not null.
+     */
+    void acquire(WriteBatch batch, DocumentReference entryRef, ShoppingEntry entry) {
+        change(batch, entryRef, entry.getImageURI(), 1);
+        change(batch, entryRef, entry.getThumbnailURI(), 1);
+    }
+
+    /**
+     * Counts the images of an history-entry as used once more.
+     *
+     * @param batch          The batch, which writes the history-entry. Not null.
+     * @param historyElement The history-entry, referencing the images. Not null.
+     */
+    void acquire(WriteBatch batch, EntryHistoryElement historyElement) {
+        change(batch, null, historyElement.getImageURI(), 1);
+        change(batch, null, historyElement.getThumbnailURI(), 1);
+    }
+
+    /**
+     * Counts an image as used once less.
+     *
+     * @param batch The batch, which deletes the entry or history-entry. Not null.
+     * @param uri   Download-url of the image. Null is allowed.
+     */
+    void release(WriteBatch batch, String uri) {
+        change(batch, null, uri, -1);
+    }
+
+    /**
+     * Adjusts the counters, after an image was replaced.
+     * The new image is pinned, if the entry is stored outside of the user-directory.
+     * Nothing happens, if both uris are the same.
+     *
+     * @param batch    The batch, which updates the entry. Not null.
+     * @param entryRef The document of the entry. Not null.
+     * @param oldUri   Download-url of the replaced image. Null is allowed.
+     * @param newUri   Download-url of the new image. Null is allowed.
+     */
+    void replace(WriteBatch batch, DocumentReference entryRef, String oldUri, String newUri) {
+        if (Objects.equals(oldUri, newUri)) {
+            return;
+        }
+        change(batch, entryRef, newUri, 1);
+        change(batch, null, oldUri, -1);
+    }
+
+    /**
+     * Pins the images of an entry, which is written for other users, e.g. copied into their lists,
+     * without changing the counters.
+     *
+     * @param batch The batch, which writes the entry. Not null.
+     * @param entry The entry, referencing the images. Not null.
+     */
+    void pin(WriteBatch batch, ShoppingEntry entry) {
+        for (String uri : new String[]{entry.getImageURI(), entry.getThumbnailURI()}) {
+            String name = getImageName(uri);
+            if (name != null) {
+                batch.set(getPinnedReference(name), buildPin());
+            }
+        }
+    }
+
+    /**
+     * Marks an uploaded image as recently used, without changing its counter.
+     * The counter is created, if it doesn't exist yet. This prevents the deletion of an image,
+     * which was just uploaded or reused, but is not yet referenced by its entry. If it never will be,
+     * e.g. because the entry was deleted meanwhile, the image is deleted after the grace period.
+     *
+     * @param storagePath Path of the image within firebase storage. Not null.
+     */
+    void touch(String storagePath) {
+        String name = getImageName(FirebaseStorage.getInstance().getReference(storagePath));
+        if (name != null) {
+            getReference(name).set(buildCounterChange(0), SetOptions.merge())
+                    .addOnFailureListener(callbacks, e -> Log.d(REFERENCES_TAG, Objects.requireNonNull(e.getMessage())));
+        }
+    }
+
+    /**
+     * Counts an image of the user. The image is pinned, if it's written outside of the user-directory.
+     *
+     * @param target The document, which references the image afterwards. Null, if it's within the user-directory.
+     */
+    private void change(WriteBatch batch, DocumentReference target, String uri, long delta) {
+        String name = getImageName(uri);
+        if (name == null) {
+            return;
+        }
+        batch.set(getReference(name), buildCounterChange(delta), SetOptions.merge());
+        if (target != null && !UserReferences.current().contains(target)) {
+            batch.set(getPinnedReference(name), buildPin());
+        }
+    }
+
+    private Map<String, Object> buildCounterChange(long delta) {
+        Map<String, Object> counter = new HashMap<>();
+        counter.put(REF_COUNT_PROPERTY, FieldValue.increment(delta));
+        counter.put(REF_UPDATED_PROPERTY, FieldValue.serverTimestamp());
+        return counter;
+    }
+
+    private Map<String, Object> buildPin() {
+        Map<String, Object> pin = new HashMap<>();
+        pin.put(PINNED_PROPERTY, true);
+        return pin;
+    }
+
+    private DocumentReference getReference(String name) {
+        return UserReferences.current().getImageRefsRoot().document(name);
+    }
+
+    private DocumentReference getPinnedReference(String name) {
+        return UserReferences.current().getPinnedImagesRoot().document(name);
+    }
+
+    /**
+     * Returns the name of the image in firebase storage. Null, if the uri doesn't point to firebase storage,
+     * the image belongs to another user or was stored under a random name. The references of those images
+     * can't be counted, so counting only some of them would lead to the deletion of images, which are still in use.
+     */
+    private String getImageName(String uri) {
+        if (uri == null || !uri.startsWith("http")) {
+            return null;
+        }
+        try {
+            return getImageName(FirebaseStorage.getInstance().getReferenceFromUrl(uri));
+        } catch (IllegalArgumentException e) {
+            Log.d(REFERENCES_TAG, "Not an image of firebase storage: " + uri);
+            return null;
+        }
+    }
+
+    private String getImageName(StorageReference image) {
+        if (!UserReferences.isSignedIn()) {
+            return null;
+        }
+        StorageReference ownFolder = FirebaseStorage.getInstance().getReference(UserReferences.current().getImageFolder());
+        boolean own = ownFolder.equals(image.getParent());
+        return own && CONTENT_HASH.matcher(image.getName()).matches() ? image.getName() : null;
+    }
+}
@@ -0,0 +1,61 @@
+package de.db.shoppinglist.database;
+
+import android.content.Context;
+import android.net.Uri;
+
+import java.io.File;
+
+import de.db.shoppinglist.model.ImageReference;
+
+/**
+ * This class decides, from where the image of an entry is displayed, so that it's displayed
+ * immediately instead of waiting for the network:
+ * <ul>
+ *     <li>While the image is uploaded, the compressed copy on the device is displayed.</li>
+ *     <li>After the upload, the copy is kept, so that the image isn't downloaded again.</li>
+ *     <li>Images of other devices are downloaded from firebase storage.</li>
+ * </ul>
+ */
+public class ImageResolver {
+
+    private static ImageResolver instance;
+    private final ImageUploadQueue uploadQueue;
+    private final LocalRenditions renditions;
+
+    private ImageResolver(Context context) {
+        uploadQueue = ImageUploadQueue.getInstance(context);
+        renditions = new LocalRenditions(context);
+    }
+
+    /**
+     * Ensures that only a single resolver exists.
+     *
+     * @param context The application context.
+     * @return Returns an instance of the ImageResolver.
+     */
+    public static synchronized ImageResolver getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageResolver(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Resolves the uri of an entry to the uri, from which it should be displayed right now.
+     *
+     * @param uri The uri, as stored within the entry. Null is allowed.
+     * @return Returns the resolved reference. Null, if there's no image.
+     */
+    public ImageReference resolve(String uri) {
+        ImageReference reference = ImageReference.of(uri);
+        if (reference == null) {
+            return null;
+        }
+        File local = reference.isRemote() ? renditions.find(uri) : uploadQueue.findPreviewFile(uri);
+        if (local == null) {
+            return reference;
+        }
+        ImageReference.Type type = reference.isRemote() ? ImageReference.Type.REMOTE : ImageReference.Type.UPLOADING;
+        return new ImageReference(type, uri, Uri.fromFile(local).toString());
+    }
+}
@@ -0,0 +1,314 @@
+package de.db.shoppinglist.database;
+
+import android.net.Uri;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.util.UUID;
+
+/**
+ * This class represents a pending upload of an image of a single entry, managed by the {@link ImageUploadQueue}.
+ * It contains everything necessary to continue the upload after a restart of the app,
+ * that's why it can be converted to and from json.
+ */
+class ImageUploadJob {
+
+    private static final String ID_KEY = "id";
+    private static final String ENTRY_PATH_KEY = "entryPath";
+    private static final String IMAGE_KEY = "image";
+    private static final String THUMBNAIL_KEY = "thumbnail";
+    private static final String PLACEHOLDER_KEY = "placeholder";
+    private static final String ATTEMPTS_KEY = "attempts";
+    private static final String FAILURES_KEY = "failures";
+    private static final String NOT_BEFORE_KEY = "notBefore";
+    /** Backoff after the first failure. It doubles with every further failure.*/
+    static final long INITIAL_BACKOFF_MILLIS = 5_000;
+    static final long MAX_BACKOFF_MILLIS = 15 * 60 * 1000L;
+    /** The backoff reaches its maximum after less failures, so the shift never overflows.*/
+    private static final int MAX_BACKOFF_SHIFT = 20;
+
+    private final String id;
+    /** Path of the firestore-document of the entry, which gets the image after the upload. */
+    private final String entryPath;
+    private final Rendition image;
+    /** Null, if there's no thumbnail to upload. */
+    private final Rendition thumbnail;
+    /** BlurHash of the image. Null, if it couldn't be computed. */
+    private final String placeholder;
+    /** Number of failures, which were caused by the upload itself, not by a missing network. */
+    private int attempts;
+    /** Number of all failures, including the ones caused by a missing network. */
+    private int failures;
+    /** Point in time (in millis), before the next attempt is not allowed to start. */
+    private long notBefore;
+
+    /**
+     * Creates a new job.
+     *
+     * @param entryPath   Path of the firestore-document of the entry. Not null.
+     * @param image       The full-size image. Not null.
+     * @param thumbnail   The thumbnail of the image. Null is allowed.
+     * @param placeholder The BlurHash of the image. Null is allowed.
+     */
+    ImageUploadJob(String entryPath, Rendition image, Rendition thumbnail, String placeholder) {
+        this(UUID.randomUUID().toString(), entryPath, image, thumbnail, placeholder, 0, 0, 0);
+    }
+
+    private ImageUploadJob(String id, String entryPath, Rendition image, Rendition thumbnail, String placeholder,
+                           int attempts, int failures, long notBefore) {
+        this.id = id;
+        this.entryPath = entryPath;
+        this.image = image;
+        this.thumbnail = thumbnail;
+        this.placeholder = placeholder;
+        this.attempts = attempts;
+        this.failures = failures;
+        this.notBefore = notBefore;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getEntryPath() {
+        return entryPath;
+    }
+
+    Rendition getImage() {
+        return image;
+    }
+
+    Rendition getThumbnail() {
+        return thumbnail;
+    }
+
+    boolean hasThumbnail() {
+        return thumbnail != null;
+    }
+
+    String getPlaceholder() {
+        return placeholder;
+    }
+
+    /**
+     * Returns the rendition, which is displayed within lists after the upload.
+     * That's the thumbnail, if it was uploaded, otherwise the full-size image.
+     */
+    Rendition getUploadedPreview() {
+        if (hasThumbnail() && thumbnail.isUploaded()) {
+            return thumbnail;
+        }
+        return image;
+    }
+
+    /**
+     * Returns the compressed file, which is displayed within lists during the upload.
+     * That's the thumbnail, if it exists, otherwise the full-size image.
+     *
+     * @return Returns the file. Null, if there's no compressed file.
+     */
+    File getPreviewFile() {
+        if (hasThumbnail() && thumbnail.getFile() != null && thumbnail.getFile().exists()) {
+            return thumbnail.getFile();
+        }
+        File file = image.getFile();
+        return file != null && file.exists() ? file : null;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    long getNotBefore() {
+        return notBefore;
+    }
+
+    /**
+     * Remembers a failed attempt and delays the next one by the backoff.
+     *
+     * @param now Current point in time (in millis).
+     */
+    void attemptFailed(long now) {
+        attempts++;
+        failed(now);
+    }
+
+    /**
+     * Remembers an attempt, which failed because of a missing network. It doesn't count as attempt,
+     * but the next one is delayed by the backoff as well.
+     *
+     * @param now Current point in time (in millis).
+     */
+    void networkFailed(long now) {
+        failed(now);
+    }
+
+    private void failed(long now) {
+        failures++;
+        notBefore = now + getBackoff();
+    }
+
+    /**
+     * Allows the next attempt to start immediately, e.g. because the network is available again.
+     */
+    void retryNow() {
+        notBefore = 0;
+    }
+
+    /**
+     * Returns the delay of the next attempt. It doubles with every failure, but never exceeds {@link #MAX_BACKOFF_MILLIS}.
+     *
+     * @return Returns the delay in millis. 0, if nothing failed yet.
+     */
+    long getBackoff() {
+        if (failures == 0) {
+            return 0;
+        }
+        int shift = Math.min(failures - 1, MAX_BACKOFF_SHIFT);
+        return Math.min(INITIAL_BACKOFF_MILLIS << shift, MAX_BACKOFF_MILLIS);
+    }
+
+    JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put(ID_KEY, id);
+        json.put(ENTRY_PATH_KEY, entryPath);
+        json.put(IMAGE_KEY, image.toJson());
+        if (hasThumbnail()) {
+            json.put(THUMBNAIL_KEY, thumbnail.toJson());
+        }
+        json.putOpt(PLACEHOLDER_KEY, placeholder);
+        json.put(ATTEMPTS_KEY, attempts);
+        json.put(FAILURES_KEY, failures);
+        json.put(NOT_BEFORE_KEY, notBefore);
+        return json;
+    }
+
+    static ImageUploadJob fromJson(JSONObject json) throws JSONException {
+        Rendition thumbnail = null;
+        if (json.has(THUMBNAIL_KEY)) {
+            thumbnail = Rendition.fromJson(json.getJSONObject(THUMBNAIL_KEY));
+        }
+        return new ImageUploadJob(json.getString(ID_KEY), json.getString(ENTRY_PATH_KEY),
+                Rendition.fromJson(json.getJSONObject(IMAGE_KEY)), thumbnail, json.optString(PLACEHOLDER_KEY, null),
+                json.getInt(ATTEMPTS_KEY), json.optInt(FAILURES_KEY, json.getInt(ATTEMPTS_KEY)), json.getLong(NOT_BEFORE_KEY));
+    }
+
+    /**
+     * A single file, which is supposed to be uploaded to firebase storage.
+     * The progress is remembered as session-uri of the resumable upload and as download-url after completion.
+     */
+    static class Rendition {
+
+        private static final String STORAGE_PATH_KEY = "storagePath";
+        private static final String SOURCE_KEY = "source";
+        private static final String FILE_KEY = "file";
+        private static final String SESSION_KEY = "session";
+        private static final String DOWNLOAD_URL_KEY = "downloadUrl";
+
+        private final String storagePath;
+        /** Device-intern uri of the original image. Used, if the file is not available. */
+        private final String source;
+        /** Path of the compressed file. Null, if the image couldn't be compressed. */
+        private String file;
+        private String session;
+        private String downloadUrl;
+
+        /**
+         * Creates a new rendition.
+         *
+         * @param storagePath Path within firebase storage. Not null.
+         * @param source      Device-intern uri of the original image. Not null.
+         * @param file        The compressed file. Null is allowed.
+         */
+        Rendition(String storagePath, String source, File file) {
+            this.storagePath = storagePath;
+            this.source = source;
+            if (file != null) {
+                this.file = file.getAbsolutePath();
+            }
+        }
+
+        String getStoragePath() {
+            return storagePath;
+        }
+
+        String getSource() {
+            return source;
+        }
+
+        /**
+         * Returns the content to upload. That's the compressed file, as long as it exists.
+         * Otherwise the original image is used.
+         */
+        Uri getContent() {
+            File compressed = getFile();
+            if (compressed != null && compressed.exists()) {
+                return Uri.fromFile(compressed);
+            }
+            return Uri.parse(source);
+        }
+
+        /**
+         * Returns the compressed file. Null, if there's none.
+         */
+        File getFile() {
+            if (file == null) {
+                return null;
+            }
+            return new File(file);
+        }
+
+        /**
+         * Returns the session-uri of a previously started upload. Null, if there's none.
+         * A session only can be resumed with the same content, so it is dropped if the compressed file is gone.
+         */
+        Uri getSession() {
+            File compressed = getFile();
+            if (session == null || (compressed != null && !compressed.exists())) {
+                return null;
+            }
+            return Uri.parse(session);
+        }
+
+        void setSession(Uri session) {
+            this.session = session == null ? null : session.toString();
+        }
+
+        String getDownloadUrl() {
+            return downloadUrl;
+        }
+
+        /**
+         * Remembers the download-url after a successful upload.
+         * The session and the compressed file are not needed anymore afterwards.
+         */
+        void setDownloadUrl(Uri downloadUrl) {
+            this.downloadUrl = downloadUrl.toString();
+            session = null;
+        }
+
+        boolean isUploaded() {
+            return downloadUrl != null;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put(STORAGE_PATH_KEY, storagePath);
+            json.put(SOURCE_KEY, source);
+            json.putOpt(FILE_KEY, file);
+            json.putOpt(SESSION_KEY, session);
+            json.putOpt(DOWNLOAD_URL_KEY, downloadUrl);
+            return json;
+        }
+
+        static Rendition fromJson(JSONObject json) throws JSONException {
+            Rendition rendition = new Rendition(json.getString(STORAGE_PATH_KEY), json.getString(SOURCE_KEY), null);
+            rendition.file = json.optString(FILE_KEY, null);
+            rendition.session = json.optString(SESSION_KEY, null);
+            rendition.downloadUrl = json.optString(DOWNLOAD_URL_KEY, null);
+            return rendition;
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package de.db.shoppinglist.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.FirebaseNetworkException;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+import com.google.firebase.storage.UploadTask;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import de.db.shoppinglist.utility.AppExecutors;
+import de.db.shoppinglist.utility.ToastUtility;
+
+/**
+ * This class uploads the images of entries to firebase storage in the background.
+ * All pending uploads are persisted, so that they survive a restart of the app. Uploads, which were
+ * interrupted, are resumed via the session-uri of firebase storage instead of starting from scratch.
+ * Failed uploads are retried with an exponential backoff. Uploads, which failed because of a missing network,
+ * are retried as soon as the network is available again. A job is only discarded, if it can never succeed,
+ * e.g. because the image can't be read anymore, since its entry references the device-intern image until then.
+ * Only a limited number of uploads run at the same time.
+ * After both renditions of an image are uploaded, the {@link UploadCompletion} is responsible for updating the entry.
+ * The compressed preview is kept in {@link LocalRenditions}, so that the entry is still displayed without a download.
+ */
+class ImageUploadQueue {
+
+    /** Callback, which updates the entry after the upload of its image. */
+    interface UploadCompletion {
+        /**
+         * Is called after all renditions of the job were uploaded.
+         *
+         * @param job The completed job, containing the download-urls.
+         * @return Returns a task, which completes after the entry was updated.
+         * If it fails, the job will be retried.
+         */
+        Task<Void> onUploadCompleted(ImageUploadJob job);
+    }
+
+    private static final String PREFERENCES_NAME = "image_upload_queue";
+    private static final String JOBS_KEY = "jobs";
+    private static final String UPLOAD_TAG = "UPLOAD";
+    private static final int MAX_CONCURRENT_UPLOADS = 2;
+    /** Number of attempts, after which the user is informed about the failure and the thumbnail is given up.
+     * Failures caused by a missing network don't count.*/
+    private static final int MAX_ATTEMPTS = 8;
+
+    private static ImageUploadQueue instance;
+    private final ToastUtility toastMaker = ToastUtility.getInstance();
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
+    private final ImageReferences references = new ImageReferences();
+    private final LocalRenditions renditions;
+    private final SharedPreferences preferences;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable pump = this::startDueJobs;
+    private final List<ImageUploadJob> jobs;
+    /** Ids of the jobs, which are currently uploading. */
+    private final Set<String> running = new HashSet<>();
+    /** Ids of the jobs, whose last attempt failed because of a missing network. */
+    private final Set<String> waitingForNetwork = new HashSet<>();
+    private UploadCompletion completion;
+
+    private ImageUploadQueue(Context context) {
+        preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        renditions = new LocalRenditions(context);
+        jobs = load();
+        listenToNetwork(context);
+    }
+
+    /**
+     * Ensures that only a single queue exists, so that no job is uploaded twice.
+     *
+     * @param context The application context.
+     * @return Returns an instance of the ImageUploadQueue.
+     */
+    static synchronized ImageUploadQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageUploadQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Jobs, which wait for the network, are started as soon as it's available again, instead of waiting for their backoff.
+     */
+    private void listenToNetwork(Context context) {
+        ConnectivityManager connectivity = context.getSystemService(ConnectivityManager.class);
+        if (connectivity == null) {
+            return;
+        }
+        connectivity.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                retryWaitingJobs();
+            }
+        });
+    }
+
+    private synchronized void retryWaitingJobs() {
+        if (waitingForNetwork.isEmpty()) {
+            return;
+        }
+        jobs.stream().filter(job -> waitingForNetwork.contains(job.getId())).forEach(ImageUploadJob::retryNow);
+        waitingForNetwork.clear();
+        persist();
+        startDueJobs();
+    }
+
+    synchronized void setUploadCompletion(UploadCompletion completion) {
+        this.completion = completion;
+    }
+
+    /**
+     * Adds a new job and starts it as soon as possible.
+     * A pending job of the same entry is discarded, since its image was replaced.
+     *
+     * @param job The new job.
+     */
+    synchronized void enqueue(ImageUploadJob job) {
+        cancel(job.getEntryPath());
+        jobs.add(job);
+        persist();
+        startDueJobs();
+    }
+
+    /**
+     * Discards the pending job of an entry, e.g. because its image was removed.
+     * A job, which is currently uploading, finishes its upload, but doesn't update the entry anymore.
+     *
+     * @param entryPath Path of the firestore-document of the entry.
+     */
+    synchronized void cancel(String entryPath) {
+        List<ImageUploadJob> discarded = new ArrayList<>();
+        for (ImageUploadJob job : jobs) {
+            if (job.getEntryPath().equals(entryPath)) {
+                discarded.add(job);
+            }
+        }
+        jobs.removeAll(discarded);
+        discarded.stream().filter(job -> !running.contains(job.getId())).forEach(this::deleteFiles);
+        persist();
+    }
+
+    /**
+     * Returns the compressed preview of an image, which is uploaded right now.
+     *
+     * @param source Device-intern uri of the original image. Not null.
+     * @return Returns the file. Null, if the image isn't uploaded or wasn't compressed.
+     */
+    synchronized File findPreviewFile(String source) {
+        for (ImageUploadJob job : jobs) {
+            if (job.getImage().getSource().equals(source)) {
+                return job.getPreviewFile();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts all persisted jobs, e.g. after a restart of the app.
+     */
+    synchronized void resume() {
+        startDueJobs();
+    }
+
+    private synchronized void startDueJobs() {
+        handler.removeCallbacks(pump);
+        if (completion == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long nextStart = Long.MAX_VALUE;
+        for (ImageUploadJob job : new ArrayList<>(jobs)) {
+            if (running.contains(job.getId())) {
+                continue;
+            }
+            if (job.getNotBefore() > now) {
+                nextStart = Math.min(nextStart, job.getNotBefore());
+            } else if (running.size() < MAX_CONCURRENT_UPLOADS) {
+                start(job);
+            }
+        }
+        if (nextStart != Long.MAX_VALUE) {
+            handler.postDelayed(pump, nextStart - now);
+        }
+    }
+
+    private void start(ImageUploadJob job) {
+        running.add(job.getId());
+        upload(job.getImage())
+                .continueWithTask(callbacks, task -> {
+                    if (!task.isSuccessful()) {
+                        throw Objects.requireNonNull(task.getException());
+                    }
+                    return uploadThumbnail(job);
+                })
+                .continueWithTask(callbacks, task -> {
+                    if (!task.isSuccessful()) {
+                        throw Objects.requireNonNull(task.getException());
+                    }
+                    return completeIfStillQueued(job);
+                })
+                .addOnSuccessListener(callbacks, aVoid -> finish(job))
+                .addOnFailureListener(callbacks, e -> retryLater(job, e));
+    }
+
+    /**
+     * The thumbnail is optional. If it fails repeatedly, the entry is updated without it at the last attempt.
+     */
+    private Task<Uri> uploadThumbnail(ImageUploadJob job) {
+        if (!job.hasThumbnail()) {
+            return Tasks.forResult(null);
+        }
+        return upload(job.getThumbnail()).continueWithTask(callbacks, task -> {
+            if (!task.isSuccessful() && job.getAttempts() < MAX_ATTEMPTS - 1) {
+                throw Objects.requireNonNull(task.getException());
+            }
+            return task.isSuccessful() ? task : Tasks.<Uri>forResult(null);
+        });
+    }
+
+    /**
+     * Uploads a rendition, if this wasn't done yet, and resolves its download-url.
+     * Since images are stored under the hash of their content, an existing file is identical
+     * to the rendition. In that case the upload is skipped and the existing file is reused.
+     */
+    private Task<Uri> upload(ImageUploadJob.Rendition rendition) {
+        if (rendition.isUploaded()) {
+            return Tasks.forResult(Uri.parse(rendition.getDownloadUrl()));
+        }
+        StorageReference reference = FirebaseStorage.getInstance().getReference(rendition.getStoragePath());
+        return reference.getDownloadUrl().continueWithTask(callbacks, existing -> {
+            if (existing.isSuccessful()) {
+                Log.d(UPLOAD_TAG, "Skipped upload of existing " + rendition.getStoragePath());
+                return existing;
+            }
+            if (!isNotFound(existing.getException())) {
+                throw Objects.requireNonNull(existing.getException());
+            }
+            return uploadFile(reference, rendition);
+        }).addOnSuccessListener(callbacks, downloadUrl -> rememberDownloadUrl(rendition, downloadUrl));
+    }
+
+    private boolean isNotFound(Exception e) {
+        return e instanceof StorageException && ((StorageException) e).getErrorCode() == StorageException.ERROR_OBJECT_NOT_FOUND;
+    }
+
+    /**
+     * The session-uri is persisted as soon as firebase storage provides it,
+     * so that an interrupted upload can be resumed.
+     */
+    private Task<Uri> uploadFile(StorageReference reference, ImageUploadJob.Rendition rendition) {
+        boolean resumed = rendition.getSession() != null;
+        UploadTask uploadTask = startUpload(reference, rendition);
+        uploadTask.addOnProgressListener(callbacks, snapshot -> rememberSession(rendition, snapshot.getUploadSessionUri()));
+        return uploadTask.continueWithTask(callbacks, task -> {
+            if (!task.isSuccessful()) {
+                if (resumed) {
+                    forgetSession(rendition);
+                }
+                throw Objects.requireNonNull(task.getException());
+            }
+            return reference.getDownloadUrl();
+        });
+    }
+
+    private UploadTask startUpload(StorageReference reference, ImageUploadJob.Rendition rendition) {
+        Uri session = rendition.getSession();
+        if (session == null) {
+            return reference.putFile(rendition.getContent());
+        }
+        Log.d(UPLOAD_TAG, "Resume upload of " + rendition.getStoragePath());
+        return reference.putFile(rendition.getContent(), new StorageMetadata(), session);
+    }
+
+    private synchronized void rememberSession(ImageUploadJob.Rendition rendition, Uri session) {
+        if (session != null && !session.equals(rendition.getSession())) {
+            rendition.setSession(session);
+            persist();
+        }
+    }
+
+    /**
+     * A resumed session, which failed, might be expired. The next attempt starts a new one.
+     */
+    private synchronized void forgetSession(ImageUploadJob.Rendition rendition) {
+        rendition.setSession(null);
+        persist();
+    }
+
+    private synchronized void rememberDownloadUrl(ImageUploadJob.Rendition rendition, Uri downloadUrl) {
+        references.touch(rendition.getStoragePath());
+        rendition.setDownloadUrl(downloadUrl);
+        persist();
+    }
+
+    private synchronized Task<Void> completeIfStillQueued(ImageUploadJob job) {
+        if (!jobs.contains(job)) {
+            Log.d(UPLOAD_TAG, "Discarded upload for " + job.getEntryPath());
+            return Tasks.forResult(null);
+        }
+        renditions.keep(job);
+        return completion.onUploadCompleted(job);
+    }
+
+    private synchronized void finish(ImageUploadJob job) {
+        running.remove(job.getId());
+        jobs.remove(job);
+        deleteFiles(job);
+        persist();
+        Log.d(UPLOAD_TAG, "Success: Uploaded image for " + job.getEntryPath());
+        startDueJobs();
+    }
+
+    /**
+     * A job, which exceeded its attempts, is retried anyway with the maximal backoff,
+     * since its entry still references the device-intern image.
+     */
+    private synchronized void retryLater(ImageUploadJob job, Exception e) {
+        running.remove(job.getId());
+        Log.d(UPLOAD_TAG, "Upload failed for " + job.getEntryPath() + ": " + e.getMessage());
+        long now = System.currentTimeMillis();
+        if (!jobs.contains(job)) {
+            deleteFiles(job);
+        } else if (isPermanentFailure(e)) {
+            jobs.remove(job);
+            deleteFiles(job);
+            toastMaker.prepareToast("Fail: Upload Image");
+        } else if (isNetworkFailure(e)) {
+            waitingForNetwork.add(job.getId());
+            job.networkFailed(now);
+        } else {
+            job.attemptFailed(now);
+            if (job.getAttempts() == MAX_ATTEMPTS) {
+                toastMaker.prepareToast("Fail: Upload Image");
+            }
+        }
+        persist();
+        startDueJobs();
+    }
+
+    /**
+     * A failure is permanent, if the image can't be read anymore or the entry was deleted.
+     */
+    private boolean isPermanentFailure(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FileNotFoundException || cause instanceof SecurityException) {
+                return true;
+            }
+            if (cause instanceof FirebaseFirestoreException
+                    && ((FirebaseFirestoreException) cause).getCode() == FirebaseFirestoreException.Code.NOT_FOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isNetworkFailure(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FirebaseNetworkException || cause instanceof IOException) {
+                return true;
+            }
+            if (cause instanceof StorageException
+                    && ((StorageException) cause).getErrorCode() == StorageException.ERROR_RETRY_LIMIT_EXCEEDED) {
+                return true;
+            }
+            if (cause instanceof FirebaseFirestoreException
+                    && ((FirebaseFirestoreException) cause).getCode() == FirebaseFirestoreException.Code.UNAVAILABLE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void deleteFiles(ImageUploadJob job) {
+        deleteFile(job.getImage().getFile());
+        if (job.hasThumbnail()) {
+            deleteFile(job.getThumbnail().getFile());
+        }
+    }
+
+    private void deleteFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.d(UPLOAD_TAG, "Could not delete " + file.getName());
+        }
+    }
+
+    private List<ImageUploadJob> load() {
+        List<ImageUploadJob> loaded = new ArrayList<>();
+        try {
+            JSONArray array = new JSONArray(preferences.getString(JOBS_KEY, "[]"));
+            for (int i = 0; i < array.length(); i++) {
+                loaded.add(ImageUploadJob.fromJson(array.getJSONObject(i)));
+            }
+        } catch (JSONException e) {
+            Log.d(UPLOAD_TAG, "Could not restore pending uploads: " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    private void persist() {
+        JSONArray array = new JSONArray();
+        try {
+            for (ImageUploadJob job : jobs) {
+                array.put(job.toJson());
+            }
+        } catch (JSONException e) {
+            Log.d(UPLOAD_TAG, "Could not persist pending uploads: " + e.getMessage());
+            return;
+        }
+        preferences.edit().putString(JOBS_KEY, array.toString()).apply();
+    }
+}
@@ -0,0 +1,130 @@
+package de.db.shoppinglist.database;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import de.db.shoppinglist.utility.AppExecutors;
+import de.db.shoppinglist.utility.ToastUtility;
+
+import static de.db.shoppinglist.database.FirebaseSource.DONE_PROPERTY;
+import static de.db.shoppinglist.database.FirebaseSource.TOTAL_PROPERTY;
+
+/**
+ * This class keeps the counters (done & total entries) of a displayed list up to date.
+ * The displayed entries are already listened to, so the counters are computed from them,
+ * instead of reading all entries again after every change. The list is written only, if the counters changed,
+ * and at most once within a short period, e.g. while several entries are checked one after another.
+ * The counters can only be computed, while all entries of the list are loaded and confirmed by the server.
+ * A result from the cache might lack entries, which were added by other members. Otherwise the entries are read,
+ * see {@link #isMaintained(DocumentReference)}.
+ */
+class ListCounterMaintainer implements PagedSnapshotArray.ResultObserver {
+
+    private static final String COUNTER_TAG = "ListCounterMaintainer";
+    private static final long DEBOUNCE_MILLIS = 500;
+    /** Paths of the lists, whose counters are computed right now.*/
+    private static final Set<String> maintained = ConcurrentHashMap.newKeySet();
+
+    private final ToastUtility toastMaker = ToastUtility.getInstance();
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable write = this::writeIfChanged;
+    private final DocumentReference listRef;
+    private long writtenDone;
+    private long writtenTotal;
+    private long done;
+    private long total;
+    private boolean pending;
+
+    /**
+     * Creates a new maintainer.
+     *
+     * @param listRef The list, whose entries are displayed. Not null.
+     * @param done    Number of entries, which are done, according to the list.
+     * @param total   Number of entries, according to the list.
+     */
+    ListCounterMaintainer(DocumentReference listRef, long done, long total) {
+        this.listRef = listRef;
+        this.writtenDone = done;
+        this.writtenTotal = total;
+        this.done = done;
+        this.total = total;
+    }
+
+    /**
+     * Returns true, if the counters of the list are computed from the displayed entries right now.
+     * In this case a change of the entries doesn't require to update the counters explicitly.
+     *
+     * @param listRef The list. Not null.
+     * @return Returns true, if the counters are maintained.
+     */
+    static boolean isMaintained(DocumentReference listRef) {
+        return maintained.contains(listRef.getPath());
+    }
+
+    /**
+     * {@inheritDoc}
+     * Runs on the main-thread.
+     */
+    @Override
+    public void onResult(List<DocumentSnapshot> snapshots, boolean complete, boolean fromCache) {
+        if (!complete || fromCache) {
+            maintained.remove(listRef.getPath());
+            return;
+        }
+        maintained.add(listRef.getPath());
+        done = snapshots.stream().filter(doc -> Boolean.TRUE.equals(doc.getBoolean(DONE_PROPERTY))).count();
+        total = snapshots.size();
+        pending = true;
+        handler.removeCallbacks(write);
+        handler.postDelayed(write, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * {@inheritDoc}
+     * A pending update of the counters is written immediately.
+     */
+    @Override
+    public void onStop() {
+        maintained.remove(listRef.getPath());
+        handler.removeCallbacks(write);
+        if (pending) {
+            writeIfChanged();
+        }
+    }
+
+    private void writeIfChanged() {
+        pending = false;
+        if (done == writtenDone && total == writtenTotal) {
+            return;
+        }
+        long newDone = done;
+        long newTotal = total;
+        writtenDone = newDone;
+        writtenTotal = newTotal;
+        Map<String, Object> counterVars = new HashMap<>();
+        counterVars.put(DONE_PROPERTY, newDone);
+        counterVars.put(TOTAL_PROPERTY, newTotal);
+        listRef.update(counterVars)
+                .addOnSuccessListener(callbacks, aVoid ->
+                        Log.d(COUNTER_TAG, "Success: " + newDone + "/" + newTotal)
+                )
+                .addOnFailureListener(callbacks, e -> {
+                            Log.d(COUNTER_TAG, Objects.requireNonNull(e.getMessage()));
+                            toastMaker.prepareToast("Fail: Update List Counter");
+                        }
+                );
+    }
+}
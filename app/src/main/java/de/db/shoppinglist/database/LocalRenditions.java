@@ -0,0 +1,85 @@
+package de.db.shoppinglist.database;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class keeps the compressed previews of uploaded images on the device, so that an entry is
+ * displayed without downloading its image again, after the upload replaced the device-intern uri by
+ * the download-url. The files are named like the image in firebase storage, i.e. by the hash of their content.
+ * Only the most recent previews are kept.
+ */
+class LocalRenditions {
+
+    private static final String RENDITIONS_TAG = "LocalRenditions";
+    private static final String RENDITIONS_FOLDER = "image_renditions";
+    private static final int MAX_RENDITIONS = 100;
+
+    private final File folder;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param context The application context.
+     */
+    LocalRenditions(Context context) {
+        folder = new File(context.getCacheDir(), RENDITIONS_FOLDER);
+    }
+
+    /**
+     * Moves the compressed preview of an uploaded job into this folder.
+     * Has to be called after the upload and before the entry is updated.
+     *
+     * @param job The job, whose renditions were uploaded. Not null.
+     */
+    synchronized void keep(ImageUploadJob job) {
+        ImageUploadJob.Rendition preview = job.getUploadedPreview();
+        File file = preview.getFile();
+        if (file == null || !file.exists() || (!folder.exists() && !folder.mkdirs())) {
+            return;
+        }
+        File kept = new File(folder, getName(preview.getStoragePath()));
+        if (!file.renameTo(kept)) {
+            Log.d(RENDITIONS_TAG, "Could not keep " + file.getName());
+            return;
+        }
+        trim();
+    }
+
+    /**
+     * Returns the kept preview of an uploaded image.
+     *
+     * @param downloadUrl The download-url of the image. Not null.
+     * @return Returns the file. Null, if the preview isn't kept on this device.
+     */
+    File find(String downloadUrl) {
+        String storagePath = Uri.parse(downloadUrl).getLastPathSegment();
+        if (storagePath == null) {
+            return null;
+        }
+        File kept = new File(folder, getName(storagePath));
+        return kept.exists() ? kept : null;
+    }
+
+    private String getName(String storagePath) {
+        return storagePath.substring(storagePath.lastIndexOf('/') + 1);
+    }
+
+    private void trim() {
+        File[] files = folder.listFiles();
+        if (files == null || files.length <= MAX_RENDITIONS) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < files.length - MAX_RENDITIONS; i++) {
+            if (!files[i].delete()) {
+                Log.d(RENDITIONS_TAG, "Could not delete " + files[i].getName());
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package de.db.shoppinglist.database;
 
+import android.content.Context;
+
 import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 
 /**
@@ -20,9 +22,10 @@ public interface Login {
      * Allows to sign-in.
      *
      * @param idToken          Token for identification.
+     * @param context          The application context.
      * @param postSignInAction Action, running after the signIn.
      *                         Typically used for navigation to different fragment.
      *                         Null is not allowed.
      */
-    void signIn(String idToken, Runnable postSignInAction);
+    void signIn(String idToken, Context context, Runnable postSignInAction);
 }
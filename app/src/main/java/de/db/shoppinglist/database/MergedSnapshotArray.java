@@ -0,0 +1,132 @@
+package de.db.shoppinglist.database;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.firestore.ObservableSnapshotArray;
+import com.firebase.ui.firestore.SnapshotParser;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class combines the results of several queries into a single array, which can be displayed by a
+ * {@link com.firebase.ui.firestore.FirestoreRecyclerAdapter}, e.g. the own lists and the lists shared with the user.
+ * Firestore can't combine queries over different collections, so the documents are merged and ordered on the device.
+ * The ids of the documents have to be unique across all queries.
+ * Like FirebaseUI's own arrays, the listeners run on the main-thread, since every change is passed to the adapter.
+ *
+ * @param <T> The model of the documents.
+ */
+class MergedSnapshotArray<T> extends ObservableSnapshotArray<T> {
+
+    private static final String MERGED_TAG = "MergedSnapshotArray";
+
+    private final List<Query> queries;
+    private final Comparator<DocumentSnapshot> order;
+    private final List<DocumentSnapshot> snapshots = new ArrayList<>();
+    private final List<ListenerRegistration> registrations = new ArrayList<>();
+
+    /**
+     * Creates a new array.
+     *
+     * @param parser  Parser, which converts a document into the model. Not null.
+     * @param order   Order of the documents within the array. Not null.
+     * @param queries The queries, whose results are combined. Not null.
+     */
+    MergedSnapshotArray(SnapshotParser<T> parser, Comparator<DocumentSnapshot> order, Query... queries) {
+        super(parser);
+        this.order = order;
+        this.queries = Arrays.asList(queries);
+    }
+
+    @NonNull
+    @Override
+    protected List<DocumentSnapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    @Override
+    protected void onCreate() {
+        super.onCreate();
+        queries.forEach(query -> registrations.add(query.addSnapshotListener(this::onEvent)));
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        registrations.forEach(ListenerRegistration::remove);
+        registrations.clear();
+    }
+
+    private void onEvent(QuerySnapshot querySnapshot, FirebaseFirestoreException e) {
+        if (e != null) {
+            Log.d(MERGED_TAG, "Query failed: " + e.getMessage());
+            notifyOnError(e);
+            return;
+        }
+        if (querySnapshot == null) {
+            return;
+        }
+        querySnapshot.getDocumentChanges().forEach(this::onChildChanged);
+        notifyOnDataChanged();
+    }
+
+    private void onChildChanged(DocumentChange change) {
+        DocumentSnapshot snapshot = change.getDocument();
+        switch (change.getType()) {
+            case ADDED:
+                notifyOnChildChanged(ChangeEventType.ADDED, snapshot, insert(snapshot), -1);
+                break;
+            case MODIFIED:
+                int oldIndex = remove(snapshot);
+                int newIndex = insert(snapshot);
+                if (oldIndex < 0) {
+                    notifyOnChildChanged(ChangeEventType.ADDED, snapshot, newIndex, -1);
+                } else if (oldIndex == newIndex) {
+                    notifyOnChildChanged(ChangeEventType.CHANGED, snapshot, newIndex, oldIndex);
+                } else {
+                    notifyOnChildChanged(ChangeEventType.MOVED, snapshot, newIndex, oldIndex);
+                    notifyOnChildChanged(ChangeEventType.CHANGED, snapshot, newIndex, newIndex);
+                }
+                break;
+            case REMOVED:
+                int removedIndex = remove(snapshot);
+                if (removedIndex >= 0) {
+                    notifyOnChildChanged(ChangeEventType.REMOVED, snapshot, -1, removedIndex);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private int insert(DocumentSnapshot snapshot) {
+        int index = 0;
+        while (index < snapshots.size() && order.compare(snapshots.get(index), snapshot) <= 0) {
+            index++;
+        }
+        snapshots.add(index, snapshot);
+        return index;
+    }
+
+    private int remove(DocumentSnapshot snapshot) {
+        for (int i = 0; i < snapshots.size(); i++) {
+            if (snapshots.get(i).getId().equals(snapshot.getId())) {
+                snapshots.remove(i);
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,220 @@
+package de.db.shoppinglist.database;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.firebase.ui.common.ChangeEventType;
+import com.firebase.ui.firestore.ObservableSnapshotArray;
+import com.firebase.ui.firestore.SnapshotParser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import de.db.shoppinglist.ifc.Pageable;
+
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * This class loads the result of an ordered query page by page, so that the first page is displayed,
+ * before the remaining documents are loaded. Only the loaded pages are listened to and kept up to date.
+ * Loading the next page replaces the listener by one with a larger limit. The documents of the previous
+ * pages are served from the local cache, so only the new page is read from the server.
+ * The old listener is removed after the new one delivered its first result, so the displayed documents
+ * never disappear in between.
+ *
+ * @param <T> The model of the documents.
+ */
+class PagedSnapshotArray<T> extends ObservableSnapshotArray<T> implements Pageable {
+
+    private static final String PAGED_TAG = "PagedSnapshotArray";
+
+    private final Query query;
+    private final int pageSize;
+    private final List<DocumentSnapshot> snapshots = new ArrayList<>();
+    private ListenerRegistration registration;
+    private int limit;
+    private boolean loading = false;
+    private boolean hasMore = true;
+    private ResultObserver observer;
+
+    /**
+     * Is notified about every displayed result of the query.
+     */
+    interface ResultObserver {
+
+        /**
+         * Is called after the displayed documents changed.
+         *
+         * @param snapshots The displayed documents. Not null.
+         * @param complete  True, if all documents of the query are displayed.
+         * @param fromCache True, if the documents are read from the cache and not yet confirmed by the server.
+         */
+        void onResult(List<DocumentSnapshot> snapshots, boolean complete, boolean fromCache);
+
+        /**
+         * Is called after the query isn't listened to anymore.
+         */
+        void onStop();
+    }
+
+    /**
+     * Creates a new array.
+     *
+     * @param query    The query, which has to be ordered. Not null.
+     * @param pageSize Number of documents, which are loaded at once.
+     * @param parser   Parser, which converts a document into the model. Not null.
+     */
+    PagedSnapshotArray(Query query, int pageSize, SnapshotParser<T> parser) {
+        super(parser);
+        this.query = query;
+        this.pageSize = pageSize;
+        this.limit = pageSize;
+    }
+
+    /**
+     * Sets an observer, which is notified about every displayed result.
+     * Has to be set before the array is listened to, since the observer is also notified,
+     * after the server confirmed a result from the cache.
+     *
+     * @param observer The observer. Null is allowed.
+     */
+    void setResultObserver(ResultObserver observer) {
+        this.observer = observer;
+    }
+
+    @NonNull
+    @Override
+    protected List<DocumentSnapshot> getSnapshots() {
+        return snapshots;
+    }
+
+    @Override
+    protected void onCreate() {
+        super.onCreate();
+        listen();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        loading = false;
+        if (observer != null) {
+            observer.onStop();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loadMore() {
+        if (loading || !hasMore || registration == null) {
+            return;
+        }
+        limit += pageSize;
+        listen();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    private void listen() {
+        ListenerRegistration replaced = registration;
+        int requestedLimit = limit;
+        loading = true;
+        MetadataChanges metadataChanges = observer != null ? MetadataChanges.INCLUDE : MetadataChanges.EXCLUDE;
+        registration = query.limit(requestedLimit).addSnapshotListener(metadataChanges, (querySnapshot, e) -> {
+            if (replaced != null) {
+                replaced.remove();
+            }
+            onEvent(querySnapshot, e, requestedLimit);
+        });
+    }
+
+    private void onEvent(QuerySnapshot querySnapshot, FirebaseFirestoreException e, int requestedLimit) {
+        if (e != null) {
+            Log.d(PAGED_TAG, "Query failed: " + e.getMessage());
+            loading = false;
+            notifyOnError(e);
+            return;
+        }
+        if (querySnapshot == null) {
+            return;
+        }
+        if (requestedLimit == limit) {
+            loading = false;
+            hasMore = querySnapshot.size() >= requestedLimit;
+        }
+        apply(querySnapshot.getDocuments());
+        notifyOnDataChanged();
+        if (observer != null && !loading) {
+            observer.onResult(snapshots, !hasMore, querySnapshot.getMetadata().isFromCache());
+        }
+    }
+
+    /**
+     * Transforms the displayed documents into the new result. Since both are ordered the same way,
+     * mostly only the documents at the end are added.
+     * A document, whose metadata changed only, e.g. after the server confirmed it, is replaced without notification.
+     */
+    private void apply(List<DocumentSnapshot> result) {
+        Set<String> resultIds = result.stream().map(DocumentSnapshot::getId).collect(toSet());
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            if (!resultIds.contains(snapshots.get(i).getId())) {
+                DocumentSnapshot removed = snapshots.remove(i);
+                notifyOnChildChanged(ChangeEventType.REMOVED, removed, -1, i);
+            }
+        }
+        for (int i = 0; i < result.size(); i++) {
+            DocumentSnapshot snapshot = result.get(i);
+            int oldIndex = indexOf(snapshot.getId(), i);
+            if (oldIndex < 0) {
+                snapshots.add(i, snapshot);
+                notifyOnChildChanged(ChangeEventType.ADDED, snapshot, i, -1);
+            } else if (oldIndex != i) {
+                DocumentSnapshot moved = snapshots.remove(oldIndex);
+                snapshots.add(i, snapshot);
+                notifyOnChildChanged(ChangeEventType.MOVED, snapshot, i, oldIndex);
+                if (isChanged(moved, snapshot)) {
+                    notifyOnChildChanged(ChangeEventType.CHANGED, snapshot, i, i);
+                }
+            } else {
+                DocumentSnapshot previous = snapshots.set(i, snapshot);
+                if (isChanged(previous, snapshot)) {
+                    notifyOnChildChanged(ChangeEventType.CHANGED, snapshot, i, i);
+                }
+            }
+        }
+    }
+
+    private boolean isChanged(DocumentSnapshot previous, DocumentSnapshot snapshot) {
+        return !Objects.equals(previous.getData(), snapshot.getData());
+    }
+
+    private int indexOf(String id, int from) {
+        for (int i = from; i < snapshots.size(); i++) {
+            if (snapshots.get(i).getId().equals(id)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,96 @@
+package de.db.shoppinglist.database;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+import de.db.shoppinglist.utility.AppExecutors;
+
+/**
+ * Defines, whether a read is served by the local cache of firestore or by the server.
+ * Reads, which tolerate outdated data, should be served by the cache, since it answers immediately,
+ * even without network, and doesn't count as a read of the server.
+ */
+enum ReadPolicy {
+    /** Only the cache is read. Fails, if the cache doesn't contain a document.*/
+    CACHE_ONLY,
+    /** The cache is read first. The server is only read, if the cache doesn't contain the result.*/
+    CACHE_THEN_SERVER,
+    /** The server is read. Only while offline, the cache is read instead. This is the default of firestore.*/
+    SERVER_THEN_CACHE,
+    /** Only the server is read. Fails while offline.*/
+    SERVER;
+
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
+
+    /**
+     * Reads the result of a query. A result from the cache is complete, if it isn't empty.
+     *
+     * @param query The query. Not null.
+     * @return Returns a task with the result.
+     */
+    Task<QuerySnapshot> get(Query query) {
+        return get(query, snapshot -> !snapshot.isEmpty());
+    }
+
+    /**
+     * Reads the result of a query.
+     * The cache only knows the documents, which were read or written before, so it might contain only
+     * a part of the result. In this case the result is read from the server for {@link #CACHE_THEN_SERVER}.
+     * While offline, the part from the cache is used anyway.
+     *
+     * @param query    The query. Not null.
+     * @param complete Returns true, if a result from the cache is complete. Not null.
+     * @return Returns a task with the result.
+     */
+    Task<QuerySnapshot> get(Query query, Predicate<QuerySnapshot> complete) {
+        if (this != CACHE_THEN_SERVER) {
+            return query.get(toSource());
+        }
+        return query.get(com.google.firebase.firestore.Source.CACHE).continueWithTask(callbacks, cached -> {
+            if (cached.isSuccessful() && complete.test(cached.getResult())) {
+                return cached;
+            }
+            return query.get(com.google.firebase.firestore.Source.SERVER)
+                    .continueWithTask(callbacks, server -> server.isSuccessful() || !cached.isSuccessful() ? server : cached);
+        });
+    }
+
+    /**
+     * Reads a document. A document from the cache is complete, if it exists.
+     *
+     * @param doc The document. Not null.
+     * @return Returns a task with the document.
+     */
+    Task<DocumentSnapshot> get(DocumentReference doc) {
+        if (this != CACHE_THEN_SERVER) {
+            return doc.get(toSource());
+        }
+        return doc.get(com.google.firebase.firestore.Source.CACHE).continueWithTask(callbacks, cached -> {
+            if (cached.isSuccessful() && cached.getResult().exists()) {
+                return cached;
+            }
+            return doc.get(com.google.firebase.firestore.Source.SERVER)
+                    .continueWithTask(callbacks, server -> server.isSuccessful() || !cached.isSuccessful() ? server : cached);
+        });
+    }
+
+    /**
+     * The source of firestore is fully qualified, since it has the same name as {@link Source}.
+     */
+    private com.google.firebase.firestore.Source toSource() {
+        switch (this) {
+            case CACHE_ONLY:
+                return com.google.firebase.firestore.Source.CACHE;
+            case SERVER:
+                return com.google.firebase.firestore.Source.SERVER;
+            default:
+                return com.google.firebase.firestore.Source.DEFAULT;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package de.db.shoppinglist.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import de.db.shoppinglist.utility.AppExecutors;
+
+import static de.db.shoppinglist.database.FirebaseSource.UID_PROPERTY;
+import static de.db.shoppinglist.database.FirebaseSource.USERS_KEY;
+import static de.db.shoppinglist.database.FirebaseSource.USER_EMAILS_KEY;
+import static de.db.shoppinglist.database.GoogleSharer.EMAIL_PROPERTY;
+
+/**
+ * This class resolves the email-address of a receiving user to his user-id.
+ * Every user registers his normalized email-address in an index at sign-in, so the user-id is read with
+ * a single document-get instead of a query. Users, who haven't signed in since the index exists, are still
+ * found by a query.
+ * Resolved recipients are cached on the device, so that sharing with the same people again resolves
+ * immediately, even without network. If a cached recipient is expired, but can't be resolved again, it's still used.
+ */
+class RecipientLookup {
+
+    private static final String RECIPIENT_TAG = "RecipientLookup";
+    private static final String PREFERENCES_NAME = "recipients";
+    private static final String UID_KEY = "uid";
+    private static final String RESOLVED_KEY = "resolved";
+    private static final long TIME_TO_LIVE_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final int MAX_CACHED_RECIPIENTS = 20;
+    private static final String GMAIL_DOMAIN = "gmail.com";
+    private static final String GOOGLEMAIL_DOMAIN = "googlemail.com";
+
+    private final SharedPreferences preferences;
+    private final Executor callbacks = AppExecutors.getInstance().firebaseCallbacks();
+
+    /**
+     * Creates a new lookup.
+     *
+     * @param context The application context.
+     */
+    RecipientLookup(Context context) {
+        preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Normalizes an email-address, so that all spellings of the same address are equal.
+     * Google ignores upper-case letters, dots and everything after a '+' within the name,
+     * and googlemail.com is the same as gmail.com.
+     *
+     * @param email Email-address. Not null.
+     * @return Returns the normalized email-address.
+     */
+    static String normalize(String email) {
+        String normalized = email.trim().toLowerCase(Locale.ROOT);
+        int at = normalized.lastIndexOf('@');
+        if (at < 0) {
+            return normalized;
+        }
+        String name = normalized.substring(0, at);
+        String domain = normalized.substring(at + 1);
+        if (domain.equals(GOOGLEMAIL_DOMAIN)) {
+            domain = GMAIL_DOMAIN;
+        }
+        if (domain.equals(GMAIL_DOMAIN)) {
+            int plus = name.indexOf('+');
+            if (plus >= 0) {
+                name = name.substring(0, plus);
+            }
+            name = name.replace(".", "");
+        }
+        return name + "@" + domain;
+    }
+
+    /**
+     * Resolves the user-id of a receiving user.
+     *
+     * @param email Email-address of the receiving user. Not null.
+     * @return Returns a task with the user-id. The result is null, if there's no user with this address.
+     */
+    Task<String> findUserId(String email) {
+        String normalized = normalize(email);
+        JSONObject cached = getCached(normalized);
+        if (cached != null && !isExpired(cached)) {
+            return Tasks.forResult(cached.optString(UID_KEY));
+        }
+        return lookup(email, normalized).continueWith(callbacks, task -> {
+            if (task.isSuccessful()) {
+                String uid = task.getResult();
+                if (uid != null) {
+                    remember(normalized, uid);
+                }
+                return uid;
+            }
+            if (cached != null) {
+                Log.d(RECIPIENT_TAG, "Using expired recipient, since lookup failed");
+                return cached.optString(UID_KEY);
+            }
+            throw Objects.requireNonNull(task.getException());
+        });
+    }
+
+    private Task<String> lookup(String email, String normalized) {
+        return FirebaseFirestore.getInstance().collection(USER_EMAILS_KEY).document(normalized).get()
+                .continueWithTask(callbacks, task -> {
+                    if (!task.isSuccessful()) {
+                        throw Objects.requireNonNull(task.getException());
+                    }
+                    DocumentSnapshot index = task.getResult();
+                    if (index.exists()) {
+                        return Tasks.forResult(index.getString(UID_PROPERTY));
+                    }
+                    return findUserIdByEmail(email);
+                });
+    }
+
+    /**
+     * Fallback for users, who aren't registered in the index yet.
+     */
+    private Task<String> findUserIdByEmail(String email) {
+        List<String> spellings = email.equals(email.toLowerCase(Locale.ROOT))
+                ? Collections.singletonList(email)
+                : Arrays.asList(email, email.toLowerCase(Locale.ROOT));
+        return FirebaseFirestore.getInstance().collection(USERS_KEY).whereIn(EMAIL_PROPERTY, spellings).limit(1).get()
+                .continueWith(callbacks, task -> {
+                    if (!task.isSuccessful()) {
+                        throw Objects.requireNonNull(task.getException());
+                    }
+                    QuerySnapshot users = task.getResult();
+                    return users.isEmpty() ? null : users.getDocuments().get(0).getId();
+                });
+    }
+
+    private JSONObject getCached(String normalized) {
+        String json = preferences.getString(normalized, null);
+        if (json == null) {
+            return null;
+        }
+        try {
+            return new JSONObject(json);
+        } catch (JSONException e) {
+            Log.d(RECIPIENT_TAG, "Could not read cached recipient: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isExpired(JSONObject cached) {
+        return cached.optLong(RESOLVED_KEY) + TIME_TO_LIVE_MILLIS < System.currentTimeMillis();
+    }
+
+    private synchronized void remember(String normalized, String uid) {
+        JSONObject recipient = new JSONObject();
+        try {
+            recipient.put(UID_KEY, uid);
+            recipient.put(RESOLVED_KEY, System.currentTimeMillis());
+        } catch (JSONException e) {
+            Log.d(RECIPIENT_TAG, "Could not cache recipient: " + e.getMessage());
+            return;
+        }
+        SharedPreferences.Editor editor = preferences.edit().putString(normalized, recipient.toString());
+        removeOldestIfFull(normalized, editor);
+        editor.apply();
+    }
+
+    private void removeOldestIfFull(String normalized, SharedPreferences.Editor editor) {
+        Map<String, ?> recipients = new HashMap<>(preferences.getAll());
+        recipients.remove(normalized);
+        if (recipients.size() < MAX_CACHED_RECIPIENTS) {
+            return;
+        }
+        recipients.keySet().stream()
+                .min(Comparator.comparingLong(key -> {
+                    JSONObject cached = getCached(key);
+                    return cached == null ? 0 : cached.optLong(RESOLVED_KEY);
+                }))
+                .ifPresent(editor::remove);
+    }
+}
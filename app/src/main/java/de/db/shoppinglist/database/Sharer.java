@@ -1,5 +1,13 @@
 package de.db.shoppinglist.database;
 
+import android.content.Context;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import de.db.shoppinglist.model.ShareMode;
+import de.db.shoppinglist.model.ShareResult;
 import de.db.shoppinglist.model.ShoppingList;
 
 /**
@@ -8,10 +16,13 @@ import de.db.shoppinglist.model.ShoppingList;
 public interface Sharer {
 
     /**
-     * Enables sharing of a single shopping-list.
+     * Enables sharing of a single shopping-list with several users at once.
      *
-     * @param list  List to share.
-     * @param email Email to identify the receiving party.
+     * @param list     List to share.
+     * @param emails   Emails to identify the receiving parties.
+     * @param mode     Whether the receiving parties get a copy or edit the list together.
+     * @param context  The application context.
+     * @param callback Is called with the outcome for every email, after sharing finished.
      */
-    void share(ShoppingList list, String email);
+    void share(ShoppingList list, Set<String> emails, ShareMode mode, Context context, Consumer<Map<String, ShareResult>> callback);
 }
@@ -5,8 +5,9 @@ import android.content.Context;
 import com.firebase.ui.firestore.FirestoreRecyclerOptions;
 
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import de.db.shoppinglist.ifc.Pageable;
 import de.db.shoppinglist.model.EntryHistoryElement;
 import de.db.shoppinglist.model.ShoppingEntry;
 import de.db.shoppinglist.model.ShoppingList;
@@ -23,19 +24,19 @@ public interface Source {
     /**
      * Adds an entry to a specific list.
      *
-     * @param listUid The list-id, to which this entry should be added.
+     * @param list    The list, to which this entry should be added.
      * @param entry   The new entry, which should be added.
      * @param context The application context.
      */
-    void addEntry(String listUid, ShoppingEntry entry, Context context);
+    void addEntry(ShoppingList list, ShoppingEntry entry, Context context);
 
     /**
      * Deletes an entry from a specific list.
      *
-     * @param listUid     Id of the list, containing this entry.
+     * @param list        The list, containing this entry.
      * @param documentUid Id of the entry, which should be deleted.
      */
-    void deleteEntry(String listUid, String documentUid);
+    void deleteEntry(ShoppingList list, String documentUid);
 
     /**
      * Adds a new shopping-list to database.
@@ -46,23 +47,26 @@ public interface Source {
 
     /**
      * Deletes a list from database.
+     * A shared list is only left, as long as other members still use it.
      *
-     * @param listId Id of the list, which is supposed to be deleted.
+     * @param list The list, which is supposed to be deleted.
      */
-    void deleteList(String listId);
+    void deleteList(ShoppingList list);
 
     /**
      * Build the FirestoreRecyclerOptions, used in {@link com.firebase.ui.firestore.FirestoreRecyclerAdapter}.
      * Due to this options the FirestoreRecyclerAdapter knows which entries of a list to display.
+     * The entries are loaded page by page, so the snapshots of the options implement {@link Pageable}.
      *
-     * @param listId Id of the list, form which the entries are supposed to be displayed.
+     * @param list The list, form which the entries are supposed to be displayed.
      * @return Returns the options, containing a query, which data should be displayed.
      */
-    FirestoreRecyclerOptions<ShoppingEntry> getShoppingListRecyclerViewOptions(String listId);
+    FirestoreRecyclerOptions<ShoppingEntry> getShoppingListRecyclerViewOptions(ShoppingList list);
 
     /**
      * Build the FirestoreRecyclerOptions, used in {@link com.firebase.ui.firestore.FirestoreRecyclerAdapter}.
      * Due to this options the FirestoreRecyclerAdapter knows which shopping-lists to display.
+     * Next to the own lists, the options include the shared lists, the user is a member of.
      *
      * @return Returns the options, containing a query, which data should be displayed.
      */
@@ -77,13 +81,28 @@ public interface Source {
      */
     void updateEntryPosition(ShoppingList list, ShoppingEntry entry, int position);
 
+    /**
+     * Sets all entries of a list to done, including the ones, which aren't displayed yet.
+     *
+     * @param list The list containing the entries.
+     */
+    void checkAllEntries(ShoppingList list);
+
+    /**
+     * Deletes the entries of a list, including the ones, which aren't displayed yet.
+     *
+     * @param list     The list containing the entries.
+     * @param onlyDone If true, only the entries, which are done, are deleted.
+     */
+    void deleteEntries(ShoppingList list, boolean onlyDone);
+
     /**
      * Updates if the entry is done or not.
      *
-     * @param listId Id of the list containing the entry.
-     * @param entry  The entry, with the new done-status.
+     * @param list  The list containing the entry.
+     * @param entry The entry, with the new done-status.
      */
-    void updateStatusDone(String listId, ShoppingEntry entry);
+    void updateStatusDone(ShoppingList list, ShoppingEntry entry);
 
     /**
      * Updates the name of a list.
@@ -102,13 +121,13 @@ public interface Source {
     void modifyWholeEntry(ShoppingList list, ShoppingEntry entry, Context context);
 
     /**
-     * Retrieves the complete history from firebase.
+     * Retrieves the history from firebase page by page, starting with the most recently used entries.
      * Since the implementation runs asynchronous, nothing is returned,
-     * but instead the caller has to provide a callback.
+     * but instead the caller has to provide a callback, which is called once for every page.
      *
-     * @param callback A callback to store the retrieved history.
+     * @param onPage A callback to store a retrieved page. Returns false, if no further pages are needed.
      */
-    void getHistory(Consumer<List<EntryHistoryElement>> callback);
+    void getHistory(Predicate<List<EntryHistoryElement>> onPage);
 
     /**
      * Deletes complete history.
@@ -123,11 +142,41 @@ public interface Source {
     /**
      * Uploads Image to Firebase Storage.
      *
-     * @param listName Name of the shopping list
-     * @param entry    Entry which
-     * @param context  Context of the image-uri
+     * @param list    The shopping list
+     * @param entry   Entry which
+     * @param context Context of the image-uri
      */
-    void uploadImage(String listName, ShoppingEntry entry, Context context);
+    void uploadImage(ShoppingList list, ShoppingEntry entry, Context context);
+
+    /**
+     * Continues all uploads of images, which were not finished before, e.g. because the app was closed.
+     *
+     * @param context The application context.
+     */
+    void resumePendingUploads(Context context);
+
+    /**
+     * Deletes images, which are not used by any entry or history-entry anymore.
+     *
+     * @param context The application context.
+     */
+    void deleteUnusedImages(Context context);
+
+    /**
+     * Loads the data of the screens, which are usually opened next, into the local caches.
+     * Blocks, until the caches are filled or the time for it is used up.
+     *
+     * @param context The application context.
+     */
+    void warmUpCaches(Context context);
+
+    /**
+     * Remembers, that a list was opened, so that its entries are loaded into the cache next time.
+     *
+     * @param list    The opened list.
+     * @param context The application context.
+     */
+    void rememberOpenedList(ShoppingList list, Context context);
 
     /**
      * Deletes a specific history entry.
@@ -135,5 +184,12 @@ public interface Source {
      * @param historyEntry The history entry, which should be deleted.
      */
     void deleteHistoryEntry(EntryHistoryElement historyEntry);
-}
 
+    /**
+     * Configures the local cache of the database. The cache keeps the data, which was read or written before,
+     * so that it can be read without network. Has to be called before the database is used the first time.
+     *
+     * @param cacheSizeBytes Size, up to which the cache may grow, before the least recently used data is removed.
+     */
+    void configureCache(long cacheSizeBytes);
+}
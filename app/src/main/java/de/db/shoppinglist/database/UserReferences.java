@@ -0,0 +1,158 @@
+package de.db.shoppinglist.database;
+
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static de.db.shoppinglist.database.FirebaseSource.HISTORY_KEY;
+import static de.db.shoppinglist.database.FirebaseSource.IMAGE_REFS_KEY;
+import static de.db.shoppinglist.database.FirebaseSource.IMAGE_STORAGE_KEY;
+import static de.db.shoppinglist.database.FirebaseSource.LISTS_ROOT_KEY;
+import static de.db.shoppinglist.database.FirebaseSource.PINNED_IMAGES_KEY;
+import static de.db.shoppinglist.database.FirebaseSource.USER_ROOT_KEY;
+
+/**
+ * This class bundles the references into the directory of the signed-in user, so that the paths are built
+ * once per sign-in, instead of once per database-call.
+ * A bundle never changes. If another user signs in or the user signs out, the whole bundle is replaced at once,
+ * so a caller never mixes the directories of two users.
+ */
+final class UserReferences {
+
+    private static final String USER_REFERENCES_TAG = "UserReferences";
+    private static final AtomicReference<UserReferences> current = new AtomicReference<>();
+    private static boolean listening;
+
+    private final String userId;
+    private final DocumentReference userRef;
+    private final CollectionReference listsRoot;
+    private final CollectionReference historyRoot;
+    private final CollectionReference imageRefsRoot;
+    private final CollectionReference pinnedImagesRoot;
+
+    private UserReferences(String userId) {
+        this.userId = userId;
+        userRef = FirebaseFirestore.getInstance().collection(USER_ROOT_KEY).document(userId);
+        listsRoot = userRef.collection(LISTS_ROOT_KEY);
+        historyRoot = userRef.collection(HISTORY_KEY);
+        imageRefsRoot = userRef.collection(IMAGE_REFS_KEY);
+        pinnedImagesRoot = userRef.collection(PINNED_IMAGES_KEY);
+    }
+
+    /**
+     * Returns the references of the signed-in user.
+     *
+     * @return Returns the references. Not null.
+     * @throws IllegalStateException If no user is signed in.
+     */
+    static UserReferences current() {
+        startListening();
+        UserReferences references = current.get();
+        if (references == null) {
+            throw new IllegalStateException("No user is signed in");
+        }
+        return references;
+    }
+
+    /**
+     * Returns true, if a user is signed in, so that {@link #current()} can be called.
+     */
+    static boolean isSignedIn() {
+        startListening();
+        return current.get() != null;
+    }
+
+    /**
+     * Replaces the references, if the signed-in user changed.
+     * Is called after sign-in and sign-out, since the listener of {@link FirebaseAuth} is notified later.
+     */
+    static void refresh() {
+        startListening();
+        update(FirebaseAuth.getInstance().getUid());
+    }
+
+    private static synchronized void startListening() {
+        if (listening) {
+            return;
+        }
+        FirebaseAuth firebaseAuth = FirebaseAuth.getInstance();
+        firebaseAuth.addAuthStateListener(auth -> update(auth.getUid()));
+        update(firebaseAuth.getUid());
+        listening = true;
+    }
+
+    private static void update(String userId) {
+        UserReferences previous = current.getAndUpdate(references -> {
+            if (userId == null) {
+                return null;
+            }
+            return references != null && references.userId.equals(userId) ? references : new UserReferences(userId);
+        });
+        if (previous != null && userId == null) {
+            Log.d(USER_REFERENCES_TAG, "User signed out");
+        }
+    }
+
+    /**
+     * Returns the uid of the user.
+     */
+    String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Returns the user-specific directory.
+     */
+    DocumentReference getUserRef() {
+        return userRef;
+    }
+
+    /**
+     * Returns the collection of the own lists.
+     */
+    CollectionReference getListsRoot() {
+        return listsRoot;
+    }
+
+    /**
+     * Returns the collection of the history.
+     */
+    CollectionReference getHistoryRoot() {
+        return historyRoot;
+    }
+
+    /**
+     * Returns the collection of the counters of the own images.
+     */
+    CollectionReference getImageRefsRoot() {
+        return imageRefsRoot;
+    }
+
+    /**
+     * Returns the collection of the own images, which are referenced outside of the user-directory.
+     */
+    CollectionReference getPinnedImagesRoot() {
+        return pinnedImagesRoot;
+    }
+
+    /**
+     * Returns the path of the folder within firebase storage, which contains the own images.
+     */
+    String getImageFolder() {
+        return IMAGE_STORAGE_KEY + "/" + userId;
+    }
+
+    /**
+     * Returns true, if the document is stored within the user-directory, so that only the user can read it.
+     *
+     * @param document Any document. Not null.
+     */
+    boolean contains(DocumentReference document) {
+        return document.getPath().startsWith(userRef.getPath() + "/");
+    }
+}
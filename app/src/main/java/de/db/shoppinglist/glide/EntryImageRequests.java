@@ -0,0 +1,100 @@
+package de.db.shoppinglist.glide;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+
+import de.db.shoppinglist.R;
+import de.db.shoppinglist.database.ImageResolver;
+import de.db.shoppinglist.model.ImageReference;
+import de.db.shoppinglist.utility.BlurHash;
+
+/**
+ * Builds the Glide-requests for images of entries within lists.
+ * Displaying and preloading have to use exactly the same request, otherwise the preloaded image
+ * is not found in the memory-cache.
+ * Images are resolved by the {@link ImageResolver}, so that copies on the device are displayed without download.
+ * Until the image is loaded, its BlurHash is displayed.
+ */
+public class EntryImageRequests {
+
+    /** Size in pixels, to which a BlurHash is decoded. The placeholder is stretched to the size of the view.*/
+    private static final int PLACEHOLDER_SIZE = 32;
+    private static final int MAX_CACHED_PLACEHOLDERS = 64;
+    private static final LruCache<String, Bitmap> placeholders = new LruCache<>(MAX_CACHED_PLACEHOLDERS);
+
+    /**
+     * Private constructor, since this class only provides static functions.
+     */
+    private EntryImageRequests() {
+        //empty constructor
+    }
+
+    /**
+     * Lists display only the thumbnail. Entries created before thumbnails existed,
+     * fall back to the full-size image.
+     *
+     * @param imageURI     Uri of the full-size image. Null is allowed.
+     * @param thumbnailURI Uri of the thumbnail. Null is allowed.
+     * @return Returns the uri to display within lists. Null, if there's no image.
+     */
+    public static String getPreviewURI(String imageURI, String thumbnailURI) {
+        if (thumbnailURI != null) {
+            return thumbnailURI;
+        }
+        return imageURI;
+    }
+
+    /**
+     * Returns the size in pixels, to which images within lists are decoded.
+     *
+     * @param context Context, which resolves the dimension.
+     * @return Returns the size in pixels.
+     */
+    public static int getPreviewSize(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.list_image_size);
+    }
+
+    /**
+     * Decodes the BlurHash of an image. Decoding is fast enough to happen while binding an item,
+     * so that the item displays a blurred preview in its first frame.
+     *
+     * @param context          Context, which provides the resources.
+     * @param imagePlaceholder BlurHash of the image. Null is allowed.
+     * @return Returns the blurred preview. Null, if there's no valid BlurHash.
+     */
+    public static Drawable getPlaceholder(Context context, String imagePlaceholder) {
+        if (imagePlaceholder == null) {
+            return null;
+        }
+        Bitmap bitmap = placeholders.get(imagePlaceholder);
+        if (bitmap == null) {
+            bitmap = BlurHash.decode(imagePlaceholder, PLACEHOLDER_SIZE, PLACEHOLDER_SIZE);
+            if (bitmap == null) {
+                return null;
+            }
+            placeholders.put(imagePlaceholder, bitmap);
+        }
+        return new BitmapDrawable(context.getResources(), bitmap);
+    }
+
+    /**
+     * Builds the request for an image within a list.
+     *
+     * @param context        Context, which resolves the image.
+     * @param requestManager The RequestManager, bound to the lifecycle of the list.
+     * @param previewURI     Uri of the image, see {@link #getPreviewURI(String, String)}.
+     * @param size           Size in pixels, see {@link #getPreviewSize(Context)}.
+     * @return Returns the request.
+     */
+    public static RequestBuilder<Drawable> preview(Context context, RequestManager requestManager, String previewURI, int size) {
+        ImageReference image = ImageResolver.getInstance(context).resolve(previewURI);
+        String displayUri = image == null ? null : image.getDisplayUri();
+        return requestManager.load(displayUri).override(size);
+    }
+}
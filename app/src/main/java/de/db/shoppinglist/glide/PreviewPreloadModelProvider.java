@@ -0,0 +1,78 @@
+package de.db.shoppinglist.glide;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Provides the images of a list to the {@link com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader},
+ * so that the images of the next items are already decoded, before they are scrolled into view.
+ */
+public class PreviewPreloadModelProvider implements ListPreloader.PreloadModelProvider<String> {
+
+    /**
+     * An adapter, whose items may contain an image.
+     */
+    public interface PreviewSource {
+        /**
+         * Returns the number of items.
+         */
+        int getItemCount();
+
+        /**
+         * Returns the uri of the image, displayed by an item.
+         *
+         * @param position Position of the item.
+         * @return Returns the uri, see {@link EntryImageRequests#getPreviewURI(String, String)}. Null, if there's no image.
+         */
+        String getPreviewURI(int position);
+    }
+
+    private final Context context;
+    private final RequestManager requestManager;
+    private final PreviewSource source;
+    private final int size;
+
+    /**
+     * Creates a new provider.
+     *
+     * @param context        Context, which resolves the images.
+     * @param requestManager The RequestManager, bound to the lifecycle of the list.
+     * @param source         The adapter of the list.
+     * @param size           Size in pixels, see {@link EntryImageRequests#getPreviewSize(Context)}.
+     */
+    public PreviewPreloadModelProvider(Context context, RequestManager requestManager, PreviewSource source, int size) {
+        this.context = context.getApplicationContext();
+        this.requestManager = requestManager;
+        this.source = source;
+        this.size = size;
+    }
+
+    @NonNull
+    @Override
+    public List<String> getPreloadItems(int position) {
+        if (position >= source.getItemCount()) {
+            return Collections.emptyList();
+        }
+        String previewURI = source.getPreviewURI(position);
+        if (previewURI == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(previewURI);
+    }
+
+    @Nullable
+    @Override
+    public RequestBuilder<Drawable> getPreloadRequestBuilder(@NonNull String previewURI) {
+        return EntryImageRequests.preview(context, requestManager, previewURI, size);
+    }
+}
@@ -0,0 +1,61 @@
+package de.db.shoppinglist.glide;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.MemorySizeCalculator;
+import com.bumptech.glide.load.resource.bitmap.DownsampleStrategy;
+import com.bumptech.glide.module.AppGlideModule;
+import com.bumptech.glide.request.RequestOptions;
+
+import java.io.InputStream;
+
+/**
+ * Configures Glide for the images of entries.
+ * The images are photos without transparency, so they are decoded with half the memory (RGB_565)
+ * and down-sampled to the size of the view. Memory- and disk-cache are sized, so that the images of
+ * a few screens of a list can be held, while scrolling back and forth.
+ * Images of firebase storage are cached by the path of the file, see {@link StorageUrlLoader}.
+ */
+@GlideModule
+public class ShoppingGlideModule extends AppGlideModule {
+
+    /** Name of the folder inside the cache-directory, containing the downloaded images.*/
+    public static final String IMAGE_DISK_CACHE_FOLDER = "image_cache";
+    private static final long DISK_CACHE_SIZE = 100L * 1024 * 1024;
+    private static final float MEMORY_CACHE_SCREENS = 3;
+    private static final float BITMAP_POOL_SCREENS = 3;
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        MemorySizeCalculator calculator = new MemorySizeCalculator.Builder(context)
+                .setMemoryCacheScreens(MEMORY_CACHE_SCREENS)
+                .setBitmapPoolScreens(BITMAP_POOL_SCREENS)
+                .build();
+        builder.setMemorySizeCalculator(calculator);
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, IMAGE_DISK_CACHE_FOLDER, DISK_CACHE_SIZE));
+        builder.setDefaultRequestOptions(new RequestOptions()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .downsample(DownsampleStrategy.FIT_CENTER));
+    }
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.prepend(String.class, InputStream.class, new StorageUrlLoader.Factory());
+    }
+
+    /**
+     * All modules are registered by annotation, so the manifest doesn't need to be parsed.
+     */
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
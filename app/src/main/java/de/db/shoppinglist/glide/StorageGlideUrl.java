@@ -0,0 +1,68 @@
+package de.db.shoppinglist.glide;
+
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.load.model.GlideUrl;
+
+import java.util.List;
+
+/**
+ * A download-url of firebase storage, which is cached by the path of the file instead of the whole url.
+ * Download-urls contain an access-token. The same image may be referenced by entries, history-entries
+ * and shared copies with different tokens, but it's still the same file, which should be cached only once.
+ */
+public class StorageGlideUrl extends GlideUrl {
+
+    private static final String STORAGE_HOST = "firebasestorage.googleapis.com";
+    /** Path of a download-url: /v0/b/{bucket}/o/{path of the file} */
+    private static final int PATH_SEGMENTS = 5;
+    private static final int BUCKET_SEGMENT = 2;
+    private static final String OBJECT_MARKER = "o";
+    private static final int OBJECT_MARKER_SEGMENT = 3;
+    private static final int OBJECT_SEGMENT = 4;
+
+    private final String storagePath;
+
+    /**
+     * Creates a new url.
+     *
+     * @param url         The download-url. Not null.
+     * @param storagePath The path of the file, see {@link #getStoragePath(String)}. Not null.
+     */
+    public StorageGlideUrl(String url, String storagePath) {
+        super(url);
+        this.storagePath = storagePath;
+    }
+
+    @Override
+    public String getCacheKey() {
+        return storagePath;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return storagePath;
+    }
+
+    /**
+     * Extracts bucket and path of the file from a download-url of firebase storage.
+     *
+     * @param url Any url. Null is allowed.
+     * @return Returns "{bucket}/{path of the file}". Null, if the url is no download-url of firebase storage.
+     */
+    public static String getStoragePath(String url) {
+        if (url == null || !url.startsWith("http")) {
+            return null;
+        }
+        Uri uri = Uri.parse(url);
+        List<String> segments = uri.getPathSegments();
+        if (!STORAGE_HOST.equals(uri.getHost()) || segments.size() != PATH_SEGMENTS
+                || !OBJECT_MARKER.equals(segments.get(OBJECT_MARKER_SEGMENT))) {
+            return null;
+        }
+        return segments.get(BUCKET_SEGMENT) + "/" + segments.get(OBJECT_SEGMENT);
+    }
+}
@@ -0,0 +1,54 @@
+package de.db.shoppinglist.glide;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.bumptech.glide.load.Options;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+import com.bumptech.glide.load.model.MultiModelLoaderFactory;
+
+import java.io.InputStream;
+
+/**
+ * Loads download-urls of firebase storage as {@link StorageGlideUrl}, so that they are cached by the
+ * path of the file. All other strings are left to the default loaders of Glide.
+ */
+public class StorageUrlLoader implements ModelLoader<String, InputStream> {
+
+    private final ModelLoader<GlideUrl, InputStream> urlLoader;
+
+    private StorageUrlLoader(ModelLoader<GlideUrl, InputStream> urlLoader) {
+        this.urlLoader = urlLoader;
+    }
+
+    @Nullable
+    @Override
+    public LoadData<InputStream> buildLoadData(@NonNull String model, int width, int height, @NonNull Options options) {
+        String storagePath = StorageGlideUrl.getStoragePath(model);
+        return urlLoader.buildLoadData(new StorageGlideUrl(model, storagePath), width, height, options);
+    }
+
+    @Override
+    public boolean handles(@NonNull String model) {
+        return StorageGlideUrl.getStoragePath(model) != null;
+    }
+
+    /**
+     * Creates the loader, which is registered in {@link ShoppingGlideModule}.
+     */
+    public static class Factory implements ModelLoaderFactory<String, InputStream> {
+
+        @NonNull
+        @Override
+        public ModelLoader<String, InputStream> build(@NonNull MultiModelLoaderFactory multiFactory) {
+            return new StorageUrlLoader(multiFactory.build(GlideUrl.class, InputStream.class));
+        }
+
+        @Override
+        public void teardown() {
+            //nothing to release
+        }
+    }
+}
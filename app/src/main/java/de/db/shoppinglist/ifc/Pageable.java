@@ -0,0 +1,18 @@
+package de.db.shoppinglist.ifc;
+
+/**
+ * Data, which is loaded page by page, e.g. the entries of a large shopping-list.
+ * Only the loaded pages are displayed and kept up to date.
+ */
+public interface Pageable {
+
+    /**
+     * Loads the next page, if there's one and no page is loaded right now.
+     */
+    void loadMore();
+
+    /**
+     * Returns true, if there might be more data than loaded so far.
+     */
+    boolean hasMore();
+}
@@ -17,10 +17,22 @@ public class EntryHistoryElement implements Parcelable {
     private String unitOfQuantity;
     private String details;
     private String imageURI;
+    /**
+     * Uri of a small rendition of the image, used within lists.
+     */
+    private String thumbnailURI;
+    /**
+     * BlurHash of the image, displayed while the image is loaded.
+     */
+    private String imagePlaceholder;
     /**
      * The id which identifies this entry in the database.
      */
     private String uid;
+    /**
+     * Point in time in milliseconds, when this entry was used the last time. The history is ordered by it.
+     */
+    private long lastUsed;
 
     /**
      * Firebase requires an empty constructor.
@@ -29,19 +41,24 @@ public class EntryHistoryElement implements Parcelable {
 
     }
 
-    public EntryHistoryElement(String name, String unitOfQuantity, String details, String imageUri) {
+    public EntryHistoryElement(String name, String unitOfQuantity, String details, String imageUri, String thumbnailUri, String imagePlaceholder) {
         this.name = name;
         this.unitOfQuantity = unitOfQuantity;
         this.details = details;
         this.imageURI = imageUri;
+        this.thumbnailURI = thumbnailUri;
+        this.imagePlaceholder = imagePlaceholder;
         this.uid = UUID.randomUUID().toString();
+        this.lastUsed = System.currentTimeMillis();
     }
 
-    public EntryHistoryElement(String name, String unitOfQuantity, String details, String imageUri, String uid) {
+    public EntryHistoryElement(String name, String unitOfQuantity, String details, String imageUri, String thumbnailUri, String imagePlaceholder, String uid) {
         this.name = name;
         this.unitOfQuantity = unitOfQuantity;
         this.details = details;
         this.imageURI = imageUri;
+        this.thumbnailURI = thumbnailUri;
+        this.imagePlaceholder = imagePlaceholder;
         this.uid = uid;
     }
 
@@ -51,7 +68,10 @@ public class EntryHistoryElement implements Parcelable {
         unitOfQuantity = in.readString();
         details = in.readString();
         imageURI = in.readString();
+        thumbnailURI = in.readString();
+        imagePlaceholder = in.readString();
         uid = in.readString();
+        lastUsed = in.readLong();
     }
 
     @Override
@@ -60,7 +80,10 @@ public class EntryHistoryElement implements Parcelable {
         dest.writeString(unitOfQuantity);
         dest.writeString(details);
         dest.writeString(imageURI);
+        dest.writeString(thumbnailURI);
+        dest.writeString(imagePlaceholder);
         dest.writeString(uid);
+        dest.writeLong(lastUsed);
     }
 
     @Override
@@ -96,10 +119,26 @@ public class EntryHistoryElement implements Parcelable {
         return imageURI;
     }
 
+    public String getThumbnailURI() {
+        return thumbnailURI;
+    }
+
+    public String getImagePlaceholder() {
+        return imagePlaceholder;
+    }
+
     public String getUid() {
         return uid;
     }
 
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public void setLastUsed(long lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -124,6 +163,7 @@ public class EntryHistoryElement implements Parcelable {
                 ", unitOfQuantity='" + unitOfQuantity + '\'' +
                 ", details='" + details + '\'' +
                 ", imageUri='" + imageURI + '\'' +
+                ", thumbnailUri='" + thumbnailURI + '\'' +
                 '}';
     }
 }
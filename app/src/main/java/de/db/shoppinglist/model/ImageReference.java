@@ -0,0 +1,102 @@
+package de.db.shoppinglist.model;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * This model represents the image of an entry and where it currently can be loaded from.
+ * While an image is uploaded, the entry references a device-intern uri. After the upload it
+ * references the download-url of firebase storage.
+ */
+public class ImageReference {
+
+    /**
+     * The state of an image.
+     */
+    public enum Type {
+        /** The image only exists on the device, e.g. a taken photo, which isn't uploaded yet. */
+        LOCAL,
+        /** The image is uploaded right now. A compressed copy exists on the device. */
+        UPLOADING,
+        /** The image is stored in firebase storage. */
+        REMOTE
+    }
+
+    private static final String REMOTE_SCHEME = "http";
+
+    private final Type type;
+    private final String uri;
+    private final String displayUri;
+
+    /**
+     * Creates a new reference.
+     *
+     * @param type       The state of the image. Not null.
+     * @param uri        The uri, as stored within the entry. Not null.
+     * @param displayUri The uri, from which the image should be displayed right now. Not null.
+     */
+    public ImageReference(Type type, String uri, String displayUri) {
+        this.type = type;
+        this.uri = uri;
+        this.displayUri = displayUri;
+    }
+
+    /**
+     * Decides by the uri of an entry, whether the image is stored in firebase storage or only on the device.
+     *
+     * @param uri The uri, as stored within the entry. Null is allowed.
+     * @return Returns a reference, which is displayed from the uri itself. Null, if there's no image.
+     */
+    public static ImageReference of(String uri) {
+        if (uri == null || uri.isEmpty()) {
+            return null;
+        }
+        Type type = uri.startsWith(REMOTE_SCHEME) ? Type.REMOTE : Type.LOCAL;
+        return new ImageReference(type, uri, uri);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getDisplayUri() {
+        return displayUri;
+    }
+
+    /**
+     * Returns true, if the image is stored in firebase storage.
+     */
+    public boolean isRemote() {
+        return type == Type.REMOTE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ImageReference that = (ImageReference) o;
+        return type == that.type &&
+                Objects.equals(uri, that.uri) &&
+                Objects.equals(displayUri, that.displayUri);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, uri, displayUri);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ImageReference{" +
+                "type=" + type +
+                ", uri='" + uri + '\'' +
+                ", displayUri='" + displayUri + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,11 @@
+package de.db.shoppinglist.model;
+
+/**
+ * This model represents how a shopping-list is shared with a different user.
+ */
+public enum ShareMode {
+    /** The receiving user gets an independent copy of the list and all its entries. */
+    COPY,
+    /** The list is edited together. It exists only once and the receiving user becomes a member. */
+    LIVE
+}
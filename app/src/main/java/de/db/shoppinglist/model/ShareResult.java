@@ -0,0 +1,15 @@
+package de.db.shoppinglist.model;
+
+/**
+ * This model represents the outcome of sharing a shopping-list with a different user.
+ */
+public enum ShareResult {
+    /** The list was copied to the receiving user or the receiving user became a member of it. */
+    SHARED,
+    /** The list wasn't shared, since the receiving user is the current user. */
+    SAME_USER,
+    /** The list wasn't shared, since no user with the given email exists. */
+    UNKNOWN_RECEIVER,
+    /** The list couldn't be copied. Nothing is left at the receiving user. */
+    FAILED
+}
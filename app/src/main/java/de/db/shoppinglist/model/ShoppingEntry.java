@@ -22,6 +22,10 @@ public class ShoppingEntry implements Parcelable, PositionAware {
      /** Position of this entry, within a list. */
     private int position = -1;
     private String imageURI;
+    /** Uri of a small rendition of the image, used within lists. */
+    private String thumbnailURI;
+    /** BlurHash of the image, displayed while the image is loaded. */
+    private String imagePlaceholder;
 
     /**
      * Empty constructor required by Firestore.
@@ -49,6 +53,8 @@ public class ShoppingEntry implements Parcelable, PositionAware {
         uid = String.valueOf(UUID.randomUUID());
         position = other.position;
         imageURI = other.imageURI;
+        thumbnailURI = other.thumbnailURI;
+        imagePlaceholder = other.imagePlaceholder;
     }
 
 
@@ -61,6 +67,8 @@ public class ShoppingEntry implements Parcelable, PositionAware {
         uid = in.readString();
         position = in.readInt();
         imageURI = in.readString();
+        thumbnailURI = in.readString();
+        imagePlaceholder = in.readString();
     }
 
     @Override
@@ -73,6 +81,8 @@ public class ShoppingEntry implements Parcelable, PositionAware {
         dest.writeString(uid);
         dest.writeInt(position);
         dest.writeString(imageURI);
+        dest.writeString(thumbnailURI);
+        dest.writeString(imagePlaceholder);
     }
 
     @Override
@@ -144,6 +154,22 @@ public class ShoppingEntry implements Parcelable, PositionAware {
         return imageURI;
     }
 
+    public void setThumbnailURI(String thumbnailURI) {
+        this.thumbnailURI = thumbnailURI;
+    }
+
+    public String getThumbnailURI() {
+        return thumbnailURI;
+    }
+
+    public void setImagePlaceholder(String imagePlaceholder) {
+        this.imagePlaceholder = imagePlaceholder;
+    }
+
+    public String getImagePlaceholder() {
+        return imagePlaceholder;
+    }
+
 
     @Override
     public int getPosition() {
@@ -157,7 +183,7 @@ public class ShoppingEntry implements Parcelable, PositionAware {
      * @return Returns a history-entry.
      */
     public EntryHistoryElement extractHistoryElement() {
-        return new EntryHistoryElement(name, unitOfQuantity, details, imageURI);
+        return new EntryHistoryElement(name, unitOfQuantity, details, imageURI, thumbnailURI, imagePlaceholder);
     }
 
     @Override
@@ -172,11 +198,13 @@ public class ShoppingEntry implements Parcelable, PositionAware {
                 name.equals(that.name) &&
                 Objects.equals(details, that.details) &&
                 uid.equals(that.uid) &&
-                Objects.equals(imageURI, that.imageURI);
+                Objects.equals(imageURI, that.imageURI) &&
+                Objects.equals(thumbnailURI, that.thumbnailURI) &&
+                Objects.equals(imagePlaceholder, that.imagePlaceholder);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(quantity, unitOfQuantity, done, name, details, uid, position, imageURI);
+        return Objects.hash(quantity, unitOfQuantity, done, name, details, uid, position, imageURI, thumbnailURI, imagePlaceholder);
     }
 }
@@ -3,12 +3,16 @@ package de.db.shoppinglist.model;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import com.google.firebase.firestore.IgnoreExtraProperties;
+
 import java.util.UUID;
 
 /**
  * This model represents a shoppinglist.
  * It implements PositionContainer, so that the entries within this list have on order/position.
+ * A shared list exists only once and is edited by all its members. Its member set is only stored in the database.
  */
+@IgnoreExtraProperties
 public class ShoppingList implements Parcelable, PositionContainer {
 
     private String name;
@@ -20,6 +24,8 @@ public class ShoppingList implements Parcelable, PositionContainer {
     private int total;
     /** Holds the next free position, for the next entry, which could be added to the list.*/
     private int nextFreePosition;
+    /** Tells whether this list is shared with other users, instead of being stored within the user directory.*/
+    private boolean shared;
 
     public ShoppingList() {
 
@@ -32,6 +38,20 @@ public class ShoppingList implements Parcelable, PositionContainer {
         uid = String.valueOf(UUID.randomUUID());
     }
 
+    /**
+     * Copy constructor.
+     *
+     * @param other The list to copy. Not null.
+     */
+    public ShoppingList(ShoppingList other) {
+        this.name = other.name;
+        this.uid = other.uid;
+        this.done = other.done;
+        this.total = other.total;
+        this.nextFreePosition = other.nextFreePosition;
+        this.shared = other.shared;
+    }
+
 
     protected ShoppingList(Parcel in) {
         name = in.readString();
@@ -39,6 +59,7 @@ public class ShoppingList implements Parcelable, PositionContainer {
         done = in.readInt();
         total = in.readInt();
         nextFreePosition = in.readInt();
+        shared = in.readByte() != 0;
     }
 
     @Override
@@ -48,6 +69,7 @@ public class ShoppingList implements Parcelable, PositionContainer {
         dest.writeInt(done);
         dest.writeInt(total);
         dest.writeInt(nextFreePosition);
+        dest.writeByte((byte) (shared ? 1 : 0));
     }
 
     @Override
@@ -92,4 +114,12 @@ public class ShoppingList implements Parcelable, PositionContainer {
         nextFreePosition++;
         return nextFreePosition;
     }
-}
\ No newline at end of file
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public void setShared(boolean shared) {
+        this.shared = shared;
+    }
+}
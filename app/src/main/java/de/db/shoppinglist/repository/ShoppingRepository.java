@@ -10,7 +10,11 @@ import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import de.db.shoppinglist.database.FirebaseSource;
 import de.db.shoppinglist.database.GoogleLogin;
@@ -19,6 +23,8 @@ import de.db.shoppinglist.database.Login;
 import de.db.shoppinglist.database.Sharer;
 import de.db.shoppinglist.database.Source;
 import de.db.shoppinglist.model.EntryHistoryElement;
+import de.db.shoppinglist.model.ShareMode;
+import de.db.shoppinglist.model.ShareResult;
 import de.db.shoppinglist.model.ShoppingEntry;
 import de.db.shoppinglist.model.ShoppingList;
 
@@ -34,6 +40,9 @@ public class ShoppingRepository {
     private Source db = new FirebaseSource();
     private Sharer sharer = new GoogleSharer();
     private Login login = new GoogleLogin();
+    private final MutableLiveData<List<EntryHistoryElement>> history = new MutableLiveData<>(emptyList());
+    /** Counts the retrievals of the history, so that only the latest one is displayed.*/
+    private final AtomicInteger historyRetrieval = new AtomicInteger();
 
     /**
      * Ensures that all viewmodels retrieve their information from the same source.
@@ -50,23 +59,23 @@ public class ShoppingRepository {
     /**
      * Adds an entry to a specific list.
      *
-     * @param listId The list-id, to which this entry should be added.
-     * @param newEntry   The new entry, which should be added.
-     * @param context The application context.
+     * @param list     The list, to which this entry should be added.
+     * @param newEntry The new entry, which should be added.
+     * @param context  The application context.
      */
-    public void addEntry(String listId, ShoppingEntry newEntry, Context context) {
-        Runnable run = () -> db.addEntry(listId, newEntry, context);
+    public void addEntry(ShoppingList list, ShoppingEntry newEntry, Context context) {
+        Runnable run = () -> db.addEntry(list, newEntry, context);
         startThread(run);
     }
 
     /**
      * Deletes an entry from a specific list.
      *
-     * @param listUid     Id of the list, containg this entry.
+     * @param list        The list, containg this entry.
      * @param documentUid Id of the entry, which should be deleted.
      */
-    public void deleteEntry(String listUid, String documentUid) {
-        Runnable run = () -> db.deleteEntry(listUid, documentUid);
+    public void deleteEntry(ShoppingList list, String documentUid) {
+        Runnable run = () -> db.deleteEntry(list, documentUid);
         startThread(run);
     }
 
@@ -83,10 +92,10 @@ public class ShoppingRepository {
     /**
      * Deletes a list from database.
      *
-     * @param listId Id of the list, which is supposed to be deleted.
+     * @param list The list, which is supposed to be deleted.
      */
-    public void deleteList(String listId) {
-        Runnable run = () -> db.deleteList(listId);
+    public void deleteList(ShoppingList list) {
+        Runnable run = () -> db.deleteList(list);
         startThread(run);
     }
 
@@ -94,11 +103,11 @@ public class ShoppingRepository {
      * Build the FirestoreRecyclerOptions, used in {@link com.firebase.ui.firestore.FirestoreRecyclerAdapter}.
      * Due to this options the FirestoreRecyclerAdapter knows which entries of a list to display.
      *
-     * @param listId Id of the list, form which the entries are supposed to be displayed.
+     * @param list The list, form which the entries are supposed to be displayed.
      * @return Returns the options, containing a query, which data should be displayed.
      */
-    public FirestoreRecyclerOptions<ShoppingEntry> getRecyclerViewOptions(String listId) {
-        return db.getShoppingListRecyclerViewOptions(listId);
+    public FirestoreRecyclerOptions<ShoppingEntry> getRecyclerViewOptions(ShoppingList list) {
+        return db.getShoppingListRecyclerViewOptions(list);
     }
 
     /**
@@ -123,14 +132,35 @@ public class ShoppingRepository {
         startThread(run);
     }
 
+    /**
+     * Sets all entries of a list to done, including the ones, which aren't displayed yet.
+     *
+     * @param list The list containing the entries.
+     */
+    public void checkAllEntries(ShoppingList list) {
+        Runnable run = () -> db.checkAllEntries(list);
+        startThread(run);
+    }
+
+    /**
+     * Deletes the entries of a list, including the ones, which aren't displayed yet.
+     *
+     * @param list     The list containing the entries.
+     * @param onlyDone If true, only the entries, which are done, are deleted.
+     */
+    public void deleteEntries(ShoppingList list, boolean onlyDone) {
+        Runnable run = () -> db.deleteEntries(list, onlyDone);
+        startThread(run);
+    }
+
     /**
      * Updates if the entry is done or not.
      *
-     * @param listId Id of the list containing the entry.
-     * @param entry  The entry, with the new done-status.
+     * @param list  The list containing the entry.
+     * @param entry The entry, with the new done-status.
      */
-    public void updateDoneStatus(String listId, ShoppingEntry entry) {
-        Runnable run = () -> db.updateStatusDone(listId, entry);
+    public void updateDoneStatus(ShoppingList list, ShoppingEntry entry) {
+        Runnable run = () -> db.updateStatusDone(list, entry);
         startThread(run);
     }
 
@@ -157,18 +187,66 @@ public class ShoppingRepository {
     }
 
     /**
-     * Retrieves the complete history from firebase.
+     * Retrieves the history from firebase, starting with the most recently used entries.
+     * The history, which was retrieved last time, is kept until the first page arrives, so something
+     * is displayed immediately. Afterwards the remaining pages are added one after another.
+     * A page of a previous retrieval, which is still running, is dropped.
      * @return Returns LiveData representing the whole history.
      */
     public LiveData<List<EntryHistoryElement>> getHistory() {
+        int retrieval = historyRetrieval.incrementAndGet();
         final List<EntryHistoryElement> result = new ArrayList<>();
-        MutableLiveData<List<EntryHistoryElement>> liveResult = new MutableLiveData<>(emptyList());
-        Consumer<List<EntryHistoryElement>> history = list -> {
-            result.addAll(new ArrayList<>(list));
-            liveResult.setValue(result);
+        Predicate<List<EntryHistoryElement>> onPage = page -> {
+            if (retrieval != historyRetrieval.get()) {
+                return false;
+            }
+            result.addAll(page);
+            history.postValue(new ArrayList<>(result));
+            return true;
         };
-        db.getHistory(history);
-        return liveResult;
+        db.getHistory(onPage);
+        return history;
+    }
+
+    /**
+     * Continues all uploads of images, which were not finished before, e.g. because the app was closed.
+     *
+     * @param context The application context.
+     */
+    public void resumePendingUploads(Context context) {
+        Runnable run = () -> db.resumePendingUploads(context);
+        startThread(run);
+    }
+
+    /**
+     * Deletes images, which are not used by any entry or history-entry anymore.
+     *
+     * @param context The application context.
+     */
+    public void deleteUnusedImages(Context context) {
+        Runnable run = () -> db.deleteUnusedImages(context);
+        startThread(run);
+    }
+
+    /**
+     * Loads the data of the screens, which are usually opened next, into the local caches.
+     *
+     * @param context The application context.
+     */
+    public void warmUpCaches(Context context) {
+        Runnable run = () -> db.warmUpCaches(context);
+        startThread(run);
+    }
+
+    /**
+     * Remembers, that a list was opened, so that its entries are loaded into the cache next time.
+     *
+     * @param list    The opened list.
+     * @param context The application context.
+     */
+    public void rememberOpenedList(ShoppingList list, Context context) {
+        Runnable run = () -> db.rememberOpenedList(list, context);
+        startThread(run);
     }
 
     /**
@@ -206,13 +284,17 @@ public class ShoppingRepository {
     }
 
     /**
-     * Allows to sign-in.
+     * Allows to sign-in. Afterwards the caches are warmed up in the background.
      *
      * @param idToken          Token for identification.
+     * @param context          The application context.
      * @param navigationToShoppingList Navigation, executed immediately after the sign-in
      */
-    public void signInWithCredential(String idToken, Runnable navigationToShoppingList) {
-        Runnable run = () -> login.signIn(idToken, navigationToShoppingList);
+    public void signInWithCredential(String idToken, Context context, Runnable navigationToShoppingList) {
+        Runnable run = () -> login.signIn(idToken, context, () -> {
+            navigationToShoppingList.run();
+            warmUpCaches(context);
+        });
         startThread(run);
     }
 
@@ -227,16 +309,28 @@ public class ShoppingRepository {
     }
 
     /**
-     * Enables sharing of a single shopping-list.
+     * Enables sharing of a single shopping-list with several users at once.
      *
-     * @param list  List to share.
-     * @param email Email to identify the receiving party.
+     * @param list     List to share.
+     * @param emails   Emails to identify the receiving parties.
+     * @param mode     Whether the receiving parties get a copy or edit the list together.
+     * @param context  The application context.
+     * @param callback Is called with the outcome for every email, after sharing finished.
      */
-    public void share(ShoppingList list, String email) {
-        Runnable run = () -> sharer.share(list, email);
+    public void share(ShoppingList list, Set<String> emails, ShareMode mode, Context context, Consumer<Map<String, ShareResult>> callback) {
+        Runnable run = () -> sharer.share(list, emails, mode, context, callback);
         startThread(run);
     }
 
+    /**
+     * Configures the local cache of the database. Has to be called before the database is used the first time.
+     *
+     * @param cacheSizeBytes Size, up to which the cache may grow.
+     */
+    public void configureCache(long cacheSizeBytes) {
+        db.configureCache(cacheSizeBytes);
+    }
+
     /**
      * Allows to change the underlying implementation of the database during runtime.
      * @param db An alternative implementation for the database.
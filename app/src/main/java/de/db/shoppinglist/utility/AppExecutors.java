@@ -0,0 +1,88 @@
+package de.db.shoppinglist.utility;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility, which provides the executors of the app globally.
+ * Reason: Without an explicit executor, all listeners of firebase-tasks run on the main-thread.
+ * Expensive work, like compressing images, must never happen there, otherwise the app stops responding.
+ */
+public class AppExecutors {
+
+    /** Decoding an image needs a lot of memory, so only few images are processed at the same time.*/
+    private static final int IMAGE_PROCESSING_THREADS = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static AppExecutors instance;
+    private final ExecutorService imageProcessing;
+    private final Executor firebaseCallbacks;
+
+    /**
+     * Private constructor should enforce the singleton-pattern.
+     */
+    private AppExecutors() {
+        ThreadPoolExecutor imagePool = new ThreadPoolExecutor(IMAGE_PROCESSING_THREADS, IMAGE_PROCESSING_THREADS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory("image-processing", Thread.MIN_PRIORITY));
+        imagePool.allowCoreThreadTimeOut(true);
+        imageProcessing = imagePool;
+        firebaseCallbacks = Executors.newSingleThreadExecutor(new NamedThreadFactory("firebase-callbacks", Thread.NORM_PRIORITY));
+    }
+
+    /**
+     * Ensures that only a single instance is in use.
+     *
+     * @return Returns an instance of the AppExecutors.
+     */
+    public static synchronized AppExecutors getInstance() {
+        if (instance == null) {
+            instance = new AppExecutors();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the bounded executor for decoding, compressing and hashing images.
+     * Submitted work can be cancelled via the returned {@link java.util.concurrent.Future}.
+     *
+     * @return Returns the executor for image-processing.
+     */
+    public ExecutorService imageProcessing() {
+        return imageProcessing;
+    }
+
+    /**
+     * Returns the executor for listeners of firebase-tasks. The listeners run one after another,
+     * in the same order as on the main-thread, but without blocking the UI.
+     *
+     * @return Returns the executor for firebase-callbacks.
+     */
+    public Executor firebaseCallbacks() {
+        return firebaseCallbacks;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final int priority;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setPriority(priority);
+            return thread;
+        }
+    }
+}
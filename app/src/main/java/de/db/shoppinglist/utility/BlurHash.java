@@ -0,0 +1,260 @@
+package de.db.shoppinglist.utility;
+
+import android.graphics.Bitmap;
+
+/**
+ * Utility, which encodes an image into a BlurHash and decodes it back into a blurred bitmap.
+ * A BlurHash is a short string of a few dozen characters, describing the colors of an image by
+ * a small number of cosine-components. It's stored next to the image, so that a blurred preview
+ * can be displayed, before the image itself is loaded.
+ * See https://github.com/woltapp/blurhash for the specification.
+ */
+public class BlurHash {
+
+    private static final String CHARACTERS =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+    private static final int BASE = 83;
+    /** Images are scaled down before encoding, since the components only describe the rough colors.*/
+    private static final int ENCODE_DIMENSION = 32;
+    private static final int MAX_COMPONENTS = 9;
+    private static final int AC_STEPS = 19;
+    private static final int OPAQUE = 0xFF000000;
+
+    /**
+     * Private constructor, since this class only provides static functions.
+     */
+    private BlurHash() {
+        //empty constructor
+    }
+
+    /**
+     * Encodes an image into a BlurHash.
+     *
+     * @param bitmap      The image. It is neither modified nor recycled.
+     * @param componentsX Number of components along the x-axis, between 1 and 9.
+     * @param componentsY Number of components along the y-axis, between 1 and 9.
+     * @return Returns the BlurHash.
+     */
+    public static String encode(Bitmap bitmap, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > MAX_COMPONENTS || componentsY < 1 || componentsY > MAX_COMPONENTS) {
+            throw new IllegalArgumentException("Components must be between 1 and " + MAX_COMPONENTS);
+        }
+        Bitmap scaled = scaleDown(bitmap);
+        int width = scaled.getWidth();
+        int height = scaled.getHeight();
+        int[] pixels = new int[width * height];
+        scaled.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (scaled != bitmap) {
+            scaled.recycle();
+        }
+        return encode(pixels, width, height, componentsX, componentsY);
+    }
+
+    /**
+     * Encodes the pixels of an image into a BlurHash.
+     *
+     * @param pixels      The colors of the pixels row by row, as ARGB. The alpha is ignored.
+     * @param width       Width of the image in pixels.
+     * @param height      Height of the image in pixels.
+     * @param componentsX Number of components along the x-axis, between 1 and 9.
+     * @param componentsY Number of components along the y-axis, between 1 and 9.
+     * @return Returns the BlurHash.
+     */
+    static String encode(int[] pixels, int width, int height, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > MAX_COMPONENTS || componentsY < 1 || componentsY > MAX_COMPONENTS) {
+            throw new IllegalArgumentException("Components must be between 1 and " + MAX_COMPONENTS);
+        }
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = multiplyBasis(i, j, width, height, pixels);
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        encode83((componentsX - 1) + (componentsY - 1) * MAX_COMPONENTS, 1, hash);
+        double maxValue = 1;
+        if (factors.length > 1) {
+            double actualMax = 0;
+            for (int i = 1; i < factors.length; i++) {
+                for (double component : factors[i]) {
+                    actualMax = Math.max(actualMax, Math.abs(component));
+                }
+            }
+            int quantisedMax = (int) Math.max(0, Math.min(BASE - 1, Math.floor(actualMax * 166 - 0.5)));
+            maxValue = (quantisedMax + 1) / 166.0;
+            encode83(quantisedMax, 1, hash);
+        } else {
+            encode83(0, 1, hash);
+        }
+        encode83(encodeDC(factors[0]), 4, hash);
+        for (int i = 1; i < factors.length; i++) {
+            encode83(encodeAC(factors[i], maxValue), 2, hash);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decodes a BlurHash into a blurred bitmap.
+     * The bitmap should be small, since it's stretched anyway. Decoding a bitmap of 32x32 pixels is fast
+     * enough to be done on the main-thread.
+     *
+     * @param blurHash The BlurHash. Null is allowed.
+     * @param width    Width of the bitmap in pixels.
+     * @param height   Height of the bitmap in pixels.
+     * @return Returns the bitmap. Null, if the BlurHash is invalid.
+     */
+    public static Bitmap decode(String blurHash, int width, int height) {
+        int[] pixels = decodeToPixels(blurHash, width, height);
+        if (pixels == null) {
+            return null;
+        }
+        return Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Decodes a BlurHash into the pixels of a blurred image.
+     *
+     * @param blurHash The BlurHash. Null is allowed.
+     * @param width    Width of the image in pixels.
+     * @param height   Height of the image in pixels.
+     * @return Returns the opaque colors of the pixels row by row, as ARGB. Null, if the BlurHash is invalid.
+     */
+    static int[] decodeToPixels(String blurHash, int width, int height) {
+        if (blurHash == null || blurHash.length() < 6 || !isEncoded83(blurHash)) {
+            return null;
+        }
+        int sizeFlag = decode83(blurHash, 0, 1);
+        int componentsY = sizeFlag / MAX_COMPONENTS + 1;
+        int componentsX = sizeFlag % MAX_COMPONENTS + 1;
+        if (sizeFlag < 0 || blurHash.length() != 4 + 2 * componentsX * componentsY) {
+            return null;
+        }
+        double maxValue = (decode83(blurHash, 1, 2) + 1) / 166.0;
+        double[][] colors = new double[componentsX * componentsY][];
+        colors[0] = decodeDC(decode83(blurHash, 2, 6));
+        for (int i = 1; i < colors.length; i++) {
+            colors[i] = decodeAC(decode83(blurHash, 4 + i * 2, 6 + i * 2), maxValue);
+        }
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double r = 0;
+                double g = 0;
+                double b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    for (int i = 0; i < componentsX; i++) {
+                        double basis = Math.cos(Math.PI * x * i / width) * Math.cos(Math.PI * y * j / height);
+                        double[] color = colors[j * componentsX + i];
+                        r += color[0] * basis;
+                        g += color[1] * basis;
+                        b += color[2] * basis;
+                    }
+                }
+                pixels[y * width + x] = OPAQUE | (linearToSRGB(r) << 16) | (linearToSRGB(g) << 8) | linearToSRGB(b);
+            }
+        }
+        return pixels;
+    }
+
+    private static Bitmap scaleDown(Bitmap bitmap) {
+        int longerSide = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longerSide <= ENCODE_DIMENSION) {
+            return bitmap;
+        }
+        float scale = (float) ENCODE_DIMENSION / longerSide;
+        int width = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        return Bitmap.createScaledBitmap(bitmap, width, height, true);
+    }
+
+    private static double[] multiplyBasis(int i, int j, int width, int height, int[] pixels) {
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        double normalisation = (i == 0 && j == 0) ? 1 : 2;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double basis = normalisation * Math.cos(Math.PI * i * x / width) * Math.cos(Math.PI * j * y / height);
+                int pixel = pixels[y * width + x];
+                r += basis * sRGBToLinear((pixel >> 16) & 255);
+                g += basis * sRGBToLinear((pixel >> 8) & 255);
+                b += basis * sRGBToLinear(pixel & 255);
+            }
+        }
+        double scale = 1.0 / (width * height);
+        return new double[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int encodeDC(double[] color) {
+        return (linearToSRGB(color[0]) << 16) + (linearToSRGB(color[1]) << 8) + linearToSRGB(color[2]);
+    }
+
+    private static int encodeAC(double[] color, double maxValue) {
+        int quantR = quantise(color[0] / maxValue);
+        int quantG = quantise(color[1] / maxValue);
+        int quantB = quantise(color[2] / maxValue);
+        return quantR * AC_STEPS * AC_STEPS + quantG * AC_STEPS + quantB;
+    }
+
+    private static int quantise(double value) {
+        return (int) Math.max(0, Math.min(AC_STEPS - 1, Math.floor(signPow(value, 0.5) * 9 + 9.5)));
+    }
+
+    private static double[] decodeDC(int value) {
+        return new double[]{sRGBToLinear(value >> 16), sRGBToLinear((value >> 8) & 255), sRGBToLinear(value & 255)};
+    }
+
+    private static double[] decodeAC(int value, double maxValue) {
+        int quantR = value / (AC_STEPS * AC_STEPS);
+        int quantG = (value / AC_STEPS) % AC_STEPS;
+        int quantB = value % AC_STEPS;
+        return new double[]{
+                signPow((quantR - 9) / 9.0, 2) * maxValue,
+                signPow((quantG - 9) / 9.0, 2) * maxValue,
+                signPow((quantB - 9) / 9.0, 2) * maxValue
+        };
+    }
+
+    private static double sRGBToLinear(int value) {
+        double v = value / 255.0;
+        if (v <= 0.04045) {
+            return v / 12.92;
+        }
+        return Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSRGB(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        if (v <= 0.0031308) {
+            return (int) (v * 12.92 * 255 + 0.5);
+        }
+        return (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static double signPow(double value, double exponent) {
+        return Math.copySign(Math.pow(Math.abs(value), exponent), value);
+    }
+
+    private static void encode83(int value, int length, StringBuilder hash) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (value / (int) Math.pow(BASE, length - i)) % BASE;
+            hash.append(CHARACTERS.charAt(digit));
+        }
+    }
+
+    private static boolean isEncoded83(String hash) {
+        return hash.chars().allMatch(character -> CHARACTERS.indexOf(character) >= 0);
+    }
+
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = CHARACTERS.indexOf(hash.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * BASE + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,67 @@
+package de.db.shoppinglist.utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utility to calculate hashes of content, e.g. to identify identical images.
+ * The content is read in chunks, so that it's never held in memory as a whole.
+ */
+public class HashUtility {
+
+    private static final String ALGORITHM = "SHA-256";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Private constructor, since this class only provides static functions.
+     */
+    private HashUtility() {
+        //empty constructor
+    }
+
+    /**
+     * Calculates the SHA-256 hash of the content. The stream is not closed.
+     *
+     * @param input Stream of the content. Not null.
+     * @return Returns the hash as lowercase hex-string.
+     * @throws IOException If the content is not readable.
+     */
+    public static String sha256(InputStream input) throws IOException {
+        MessageDigest digest = getDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Calculates the SHA-256 hash of a text.
+     *
+     * @param text The text. Not null.
+     * @return Returns the hash as lowercase hex-string.
+     */
+    public static String sha256(String text) {
+        return toHex(getDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(ALGORITHM + " is supported on every device", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
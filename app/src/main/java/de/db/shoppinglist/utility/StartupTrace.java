@@ -0,0 +1,93 @@
+package de.db.shoppinglist.utility;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Utility, which measures the cold start of the app.
+ * The sections appear within system-traces, e.g. recorded by Perfetto. The time from the start of the process
+ * to the first frame and to the first displayed data is logged, so that changes of the startup can be compared.
+ */
+public class StartupTrace {
+
+    private static final String STARTUP_TAG = "Startup";
+    private static boolean firstFrameReported = false;
+    private static boolean fullyDrawnReported = false;
+
+    /**
+     * Private constructor, since this class only provides static functions.
+     */
+    private StartupTrace() {
+        //empty constructor
+    }
+
+    /**
+     * Begins a section, which is visible within system-traces. Has to be ended on the same thread.
+     *
+     * @param name Name of the section.
+     */
+    public static void beginSection(String name) {
+        Trace.beginSection(name);
+    }
+
+    /**
+     * Ends the section, which was begun last on this thread.
+     */
+    public static void endSection() {
+        Trace.endSection();
+    }
+
+    /**
+     * Runs an action once, after the first frame of the activity was drawn.
+     * Work, which isn't needed for the first frame, should be started here, so it doesn't delay it.
+     *
+     * @param activity The activity, which is started.
+     * @param action   The action, which is run on the main-thread.
+     */
+    public static void afterFirstFrame(Activity activity, Runnable action) {
+        View decorView = activity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn = false;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                ViewTreeObserver.OnDrawListener listener = this;
+                decorView.post(() -> {
+                    decorView.getViewTreeObserver().removeOnDrawListener(listener);
+                    if (!firstFrameReported) {
+                        firstFrameReported = true;
+                        Log.d(STARTUP_TAG, "Time to first frame: " + getMillisSinceProcessStart() + " ms");
+                    }
+                    action.run();
+                });
+            }
+        });
+    }
+
+    /**
+     * Reports, that the first screen displays its data. Only the first report after the start of the process counts.
+     *
+     * @param activity The activity, which displays the data. Null is allowed.
+     */
+    public static void reportFullyDrawn(Activity activity) {
+        if (fullyDrawnReported || activity == null) {
+            return;
+        }
+        fullyDrawnReported = true;
+        activity.reportFullyDrawn();
+        Log.d(STARTUP_TAG, "Time to full display: " + getMillisSinceProcessStart() + " ms");
+    }
+
+    private static long getMillisSinceProcessStart() {
+        return SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+    }
+}
@@ -29,7 +29,7 @@ public class ToastUtility {
      *
      * @return Returns an instance of the ToastUtility.
      */
-    public static ToastUtility getInstance() {
+    public static synchronized ToastUtility getInstance() {
         if (instance == null) {
             instance = new ToastUtility();
         }
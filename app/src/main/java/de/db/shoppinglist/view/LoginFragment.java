@@ -52,8 +52,6 @@ public class LoginFragment extends Fragment {
     @Override
     public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
         ((AppCompatActivity) getActivity()).getSupportActionBar().setDisplayHomeAsUpEnabled(false);
-        GoogleSignInOptions gso = getGoogleSignInOptions();
-        googleSignInClient = GoogleSignIn.getClient(getActivity(), gso);
         signInButton.setOnClickListener(v -> signIn());
         super.onViewCreated(view, savedInstanceState);
     }
@@ -73,8 +71,19 @@ public class LoginFragment extends Fragment {
                 .build();
     }
 
+    /**
+     * The client is created on first use, since creating it connects to the play-services,
+     * which isn't needed to display the login page.
+     */
+    private GoogleSignInClient getGoogleSignInClient() {
+        if (googleSignInClient == null) {
+            googleSignInClient = GoogleSignIn.getClient(requireActivity(), getGoogleSignInOptions());
+        }
+        return googleSignInClient;
+    }
+
     private void signIn() {
-        Intent signInIntent = googleSignInClient.getSignInIntent();
+        Intent signInIntent = getGoogleSignInClient().getSignInIntent();
         startActivityForResult(signInIntent, SIGN_IN_RESULT_KEY);
     }
 
@@ -98,7 +107,7 @@ public class LoginFragment extends Fragment {
 
     private void firebaseAuthWithGoogle(String idToken) {
         Runnable navigationToShoppingList = this::navigateToShoppingLists;
-        viewModel.signInWithCredential(idToken, navigationToShoppingList);
+        viewModel.signInWithCredential(idToken, requireContext().getApplicationContext(), navigationToShoppingList);
     }
 
     private void navigateToShoppingLists() {
@@ -30,6 +30,8 @@ import androidx.navigation.fragment.NavHostFragment;
 
 import com.bumptech.glide.Glide;
 
+import java.util.Objects;
+
 import de.db.shoppinglist.R;
 import de.db.shoppinglist.ifc.TakenImageSVM;
 import de.db.shoppinglist.model.ShoppingEntry;
@@ -113,7 +115,7 @@ public class ModifyEntryFragment extends Fragment {
     }
 
     private void deleteEntry() {
-        viewModel.deleteEntry(list.getUid(), entryId);
+        viewModel.deleteEntry(list, entryId);
     }
 
     private void initFields() {
@@ -258,6 +260,10 @@ public class ModifyEntryFragment extends Fragment {
         if (imageUri != null) {
             image = imageUri.toString();
         }
+        if (!Objects.equals(image, entry.getImageURI())) {
+            entry.setThumbnailURI(null);
+            entry.setImagePlaceholder(null);
+        }
         entry.setImageURI(image);
     }
 
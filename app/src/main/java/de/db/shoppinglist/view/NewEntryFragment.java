@@ -208,13 +208,22 @@ public class NewEntryFragment extends Fragment {
         String nameOfProduct = getString(nameOfProductEditText);
         String details = getString(detailsEditText);
         Uri imageUri = viewModel.getImage();
-        viewModel.addNewEntry(list, quantity, unitOfQuantity, nameOfProduct, details, imageUri, getContext());
+        String thumbnailUri = isHistoryImage(imageUri) ? historyEntry.getThumbnailURI() : null;
+        String imagePlaceholder = isHistoryImage(imageUri) ? historyEntry.getImagePlaceholder() : null;
+        viewModel.addNewEntry(list, quantity, unitOfQuantity, nameOfProduct, details, imageUri, thumbnailUri, imagePlaceholder, getContext());
         takenImageSVM.reset();
         viewModel.reset();
         closeFragment();
     }
 
 
+    /**
+     * Thumbnail and placeholder of the history-entry are only reused, if its image wasn't replaced.
+     */
+    private boolean isHistoryImage(Uri imageUri) {
+        return !noHistoryEntryProvided() && imageUri != null && imageUri.toString().equals(historyEntry.getImageURI());
+    }
+
     private float getQuantity() {
         String numberText = quantityEditText.getText().toString();
         if (numberText.isEmpty()) {
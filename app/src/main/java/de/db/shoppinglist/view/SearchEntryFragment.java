@@ -21,10 +21,17 @@ import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+
 import java.util.List;
 
 import de.db.shoppinglist.R;
 import de.db.shoppinglist.adapter.SearchEntryRecyclerViewAdapter;
+import de.db.shoppinglist.glide.EntryImageRequests;
+import de.db.shoppinglist.glide.PreviewPreloadModelProvider;
 import de.db.shoppinglist.model.EntryHistoryElement;
 import de.db.shoppinglist.model.ShoppingList;
 import de.db.shoppinglist.viewmodel.SearchEntryViewModel;
@@ -39,6 +46,8 @@ import de.db.shoppinglist.viewmodel.SearchEntryViewModel;
 public class SearchEntryFragment extends Fragment implements SearchEntryRecyclerViewAdapter.OnEntryListener {
 
     private static final String SEARCH_QUERY_KEY = "Search_query_key";
+    /** Number of items, whose images are decoded ahead of scrolling. Roughly one screen.*/
+    private static final int MAX_PRELOADED_IMAGES = 10;
     private SearchView searchView;
     private ImageButton addEntryButton;
     private RecyclerView historyOfEntries;
@@ -108,6 +117,15 @@ public class SearchEntryFragment extends Fragment implements SearchEntryRecycler
         });
         historyOfEntries.setAdapter(adapter);
         historyOfEntries.setLayoutManager(new LinearLayoutManager(getContext()));
+        preloadImages();
+    }
+
+    private void preloadImages() {
+        int size = EntryImageRequests.getPreviewSize(requireContext());
+        RequestManager requestManager = Glide.with(this);
+        PreviewPreloadModelProvider modelProvider = new PreviewPreloadModelProvider(requireContext(), requestManager, adapter, size);
+        historyOfEntries.addOnScrollListener(new RecyclerViewPreloader<>(requestManager, modelProvider,
+                new FixedPreloadSizeProvider<>(size, size), MAX_PRELOADED_IMAGES));
     }
 
     @Override
@@ -11,6 +11,7 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.WindowManager;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.TextView;
 
@@ -19,24 +20,38 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatDialogFragment;
 import androidx.lifecycle.ViewModelProvider;
 
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
 import de.db.shoppinglist.R;
+import de.db.shoppinglist.model.ShareMode;
+import de.db.shoppinglist.model.ShareResult;
 import de.db.shoppinglist.model.ShoppingList;
 import de.db.shoppinglist.viewmodel.ShareListViewModel;
 
 /**
- * This dialog allows to share a shopping-list with a different user.
- * Therefore the email-address of the other user has to be provided.
+ * This dialog allows to share a shopping-list with different users.
+ * Therefore the email-addresses of the other users have to be provided.
+ * The other user either gets a copy or edits the list together with the current user.
+ * The dialog stays open until the list was shared, so that the user can correct the address, if sharing failed.
  */
 public class ShareDialog extends AppCompatDialogFragment {
     private static final int SHARE = R.string.share;
     public static final String GMAIL_POSTFIX_1 = "@gmail.com";
     public static final String GMAIL_POSTFIX_2 = "@googlemail.com";
+    private static final Pattern EMAIL_SEPARATOR = Pattern.compile("[,;\\s]+");
     private EditText emailEditText;
+    private CheckBox editTogetherCheckBox;
     private Button doneButton;
     private Button backButton;
     private TextView listNameTextView;
     private ShareListViewModel viewModel;
     private ShoppingList list;
+    private boolean sharing = false;
 
     public ShareDialog(){
         //empty constructor required
@@ -55,6 +70,7 @@ public class ShareDialog extends AppCompatDialogFragment {
         backButton.setOnClickListener(item -> closeDialog());
         emailEditText.addTextChangedListener(enableDoneMenuItemOnTextChange());
         viewModel = new ViewModelProvider(requireActivity()).get(ShareListViewModel.class);
+        viewModel.getShareResults().observe(this, this::onShareResults);
         return dialog;
     }
 
@@ -75,6 +91,7 @@ public class ShareDialog extends AppCompatDialogFragment {
     private void getViewsById(View view) {
         listNameTextView = view.findViewById(R.id.dialog_share_list_name);
         emailEditText = view.findViewById(R.id.dialog_share_list_email_adress);
+        editTogetherCheckBox = view.findViewById(R.id.dialog_share_list_edit_together);
         doneButton = view.findViewById(R.id.dialog_share_list_doneButton);
         backButton = view.findViewById(R.id.dialog_share_list_backButton);
     }
@@ -98,12 +115,10 @@ public class ShareDialog extends AppCompatDialogFragment {
             }
 
             @Override
-            public void onTextChanged(CharSequence email, int start, int before, int count) {
-                if(isEmpty()){
-                    doneButton.setEnabled(false);
-                }else if(isGoogleMailAdress(email.toString().toLowerCase())){
-                    doneButton.setEnabled(true);
-                }
+            public void onTextChanged(CharSequence emails, int start, int before, int count) {
+                Set<String> recipients = getEmails();
+                doneButton.setEnabled(!sharing && !recipients.isEmpty()
+                        && recipients.stream().allMatch(email -> isGoogleMailAdress(email.toLowerCase())));
             }
 
             @Override
@@ -117,13 +132,38 @@ public class ShareDialog extends AppCompatDialogFragment {
         return email.endsWith(GMAIL_POSTFIX_1) || email.endsWith(GMAIL_POSTFIX_2);
     }
 
-    private boolean isEmpty() {
-        return emailEditText.getText().toString().isEmpty();
+    /**
+     * Several email-addresses are separated by commas, semicolons or whitespace.
+     */
+    private Set<String> getEmails() {
+        return Arrays.stream(EMAIL_SEPARATOR.split(emailEditText.getText().toString()))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     private void finish() {
-        String email = emailEditText.getText().toString();
-        viewModel.share(list, email);
-        closeDialog();
+        sharing = true;
+        doneButton.setEnabled(false);
+        ShareMode mode = editTogetherCheckBox.isChecked() ? ShareMode.LIVE : ShareMode.COPY;
+        viewModel.share(list, getEmails(), mode, requireContext().getApplicationContext());
+    }
+
+    /**
+     * Only the email-addresses, which the list couldn't be shared with, are kept, so that they can be corrected.
+     */
+    private void onShareResults(Map<String, ShareResult> results) {
+        if (!sharing || results == null) {
+            return;
+        }
+        sharing = false;
+        String failed = results.entrySet().stream()
+                .filter(result -> result.getValue() != ShareResult.SHARED)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.joining(", "));
+        if (failed.isEmpty()) {
+            closeDialog();
+        } else {
+            emailEditText.setText(failed);
+        }
     }
 }
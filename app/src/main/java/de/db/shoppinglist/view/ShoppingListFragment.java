@@ -21,11 +21,17 @@ import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
 import com.firebase.ui.firestore.FirestoreRecyclerOptions;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import de.db.shoppinglist.R;
 import de.db.shoppinglist.adapter.ShoppingListRecViewAdapter;
+import de.db.shoppinglist.glide.EntryImageRequests;
+import de.db.shoppinglist.glide.PreviewPreloadModelProvider;
 import de.db.shoppinglist.model.ShoppingEntry;
 import de.db.shoppinglist.model.ShoppingList;
 import de.db.shoppinglist.viewmodel.ShoppingListViewModel;
@@ -44,6 +50,10 @@ public class ShoppingListFragment extends Fragment implements ShoppingListRecVie
     private ShoppingListRecViewAdapter adapter;
     private static final String EXPANDED_POSITION_KEY = "Exp_key";
     private static final String PREV_EXPANDED_POSITION_KEY = "Prev_exp_key";
+    /** Number of items, whose images are decoded ahead of scrolling. Roughly one screen.*/
+    private static final int MAX_PRELOADED_IMAGES = 10;
+    /** Number of remaining entries, below which the next page of entries is loaded.*/
+    private static final int LOAD_MORE_THRESHOLD = 15;
 
     @Nullable
     @Override
@@ -102,8 +112,34 @@ public class ShoppingListFragment extends Fragment implements ShoppingListRecVie
     private void setUpRecyclerView() {
         entriesView.setLayoutManager(new LinearLayoutManager(getContext()));
         FirestoreRecyclerOptions<ShoppingEntry> options = shoppingListViewModel.getRecylerViewOptions(list);
+        shoppingListViewModel.rememberOpenedList(list, requireContext().getApplicationContext());
         adapter = new ShoppingListRecViewAdapter(options, this);
         entriesView.setAdapter(adapter);
+        preloadImages();
+        loadMoreOnScroll();
+    }
+
+    /**
+     * The entries are loaded page by page. The next page is loaded, before the end of the loaded entries is reached.
+     */
+    private void loadMoreOnScroll() {
+        entriesView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager != null && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    adapter.loadMore();
+                }
+            }
+        });
+    }
+
+    private void preloadImages() {
+        int size = EntryImageRequests.getPreviewSize(requireContext());
+        RequestManager requestManager = Glide.with(this);
+        PreviewPreloadModelProvider modelProvider = new PreviewPreloadModelProvider(requireContext(), requestManager, adapter, size);
+        entriesView.addOnScrollListener(new RecyclerViewPreloader<>(requestManager, modelProvider,
+                new FixedPreloadSizeProvider<>(size, size), MAX_PRELOADED_IMAGES));
     }
 
     @Override
@@ -144,16 +180,13 @@ public class ShoppingListFragment extends Fragment implements ShoppingListRecVie
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         switch (item.getItemId()) {
             case R.id.menu_shoppingList_check_all:
-                adapter.getSnapshots().forEach(entry -> shoppingListViewModel.setStatusToDone(list, entry));
+                shoppingListViewModel.checkAll(list);
                 break;
             case R.id.menu_shoppingList_delete_all_checked:
-                adapter.getSnapshots().stream()
-                        .filter(ShoppingEntry::isDone)
-                        .forEach(entry -> shoppingListViewModel.deleteEntry(list, entry));
+                shoppingListViewModel.deleteCheckedEntries(list);
                 break;
             case R.id.menuItemDeleteAllEntries:
-                adapter.getSnapshots().stream()
-                        .forEach(entry -> shoppingListViewModel.deleteEntry(list, entry));
+                shoppingListViewModel.deleteAllEntries(list);
                 break;
         }
         return super.onOptionsItemSelected(item);
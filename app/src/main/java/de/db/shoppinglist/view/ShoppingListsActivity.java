@@ -15,6 +15,8 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
 import de.db.shoppinglist.R;
+import de.db.shoppinglist.repository.ShoppingRepository;
+import de.db.shoppinglist.utility.StartupTrace;
 import de.db.shoppinglist.utility.ToastUtility;
 
 /**
@@ -23,16 +25,22 @@ import de.db.shoppinglist.utility.ToastUtility;
  * Also it decides which fragment is the startDestination, according to Android Jetpack Navigation.
  * If the user is signed-In he will start at the {@link ShoppingListsFragment}, otherwise he starts
  * at the {@link LoginFragment}.
+ * Everything, which isn't needed for the first frame, is started after it was drawn.
  */
 public class ShoppingListsActivity extends AppCompatActivity {
 
-    private ToastUtility toastUtility = ToastUtility.getInstance();
+    /** The cache holds the lists, entries and history, which were displayed before, also without network.*/
+    private static final long CACHE_SIZE_BYTES = 50L * 1024 * 1024;
+    /** The background work is started once per process, not again if the activity is recreated.*/
+    private static boolean backgroundWorkStarted = false;
     private NavController navController;
     private NavHostFragment navHostFragment;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTrace.beginSection("ShoppingListsActivity.onCreate");
         super.onCreate(savedInstanceState);
+        ShoppingRepository.getInstance().configureCache(CACHE_SIZE_BYTES);
         setContentView(R.layout.activity_main);
 
         navHostFragment = (NavHostFragment) getSupportFragmentManager().findFragmentById(R.id.nav_host_fragment);
@@ -42,10 +50,18 @@ public class ShoppingListsActivity extends AppCompatActivity {
         setSupportActionBar(toolbar);
         toolbar.setNavigationOnClickListener(v -> getOnBackPressedDispatcher().onBackPressed());
         NavigationUI.setupActionBarWithNavController(this, navController);
-        displayReceivedToasts();
+        StartupTrace.afterFirstFrame(this, () -> {
+            displayReceivedToasts();
+            startBackgroundWork();
+        });
+        StartupTrace.endSection();
     }
 
+    /**
+     * Toasts, which were prepared before, are displayed anyway, since the LiveData keeps the latest value.
+     */
     private void displayReceivedToasts() {
+        ToastUtility toastUtility = ToastUtility.getInstance();
         toastUtility.getNewToast().observe(this, isNew -> {
             if (Boolean.TRUE.equals(isNew)) {
                 String message = toastUtility.getMessage();
@@ -69,6 +85,15 @@ public class ShoppingListsActivity extends AppCompatActivity {
         }
     }
 
+    private void startBackgroundWork() {
+        if (!backgroundWorkStarted && FirebaseAuth.getInstance().getCurrentUser() != null) {
+            backgroundWorkStarted = true;
+            ShoppingRepository.getInstance().resumePendingUploads(getApplicationContext());
+            ShoppingRepository.getInstance().deleteUnusedImages(getApplicationContext());
+            ShoppingRepository.getInstance().warmUpCaches(getApplicationContext());
+        }
+    }
+
     @Override
     public boolean onSupportNavigateUp() {
         return navController.navigateUp() || super.onSupportNavigateUp();
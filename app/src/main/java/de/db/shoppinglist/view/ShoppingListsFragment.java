@@ -29,6 +29,7 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import de.db.shoppinglist.R;
 import de.db.shoppinglist.adapter.ShoppingListsRecViewAdapter;
 import de.db.shoppinglist.model.ShoppingList;
+import de.db.shoppinglist.utility.StartupTrace;
 import de.db.shoppinglist.viewmodel.ShoppingListsViewModel;
 
 /**
@@ -146,6 +147,14 @@ public class ShoppingListsFragment extends Fragment implements ShoppingListsRecV
         navController.navigate(toLoginFragment);
     }
 
+    /**
+     * The lists overview is the first screen, so the startup is finished, once the lists are displayed.
+     */
+    @Override
+    public void onListsLoaded() {
+        StartupTrace.reportFullyDrawn(getActivity());
+    }
+
     @Override
     public void onListClick(int position) {
         ShoppingList list = adapter.getItem(position);
@@ -13,11 +13,11 @@ import androidx.navigation.fragment.NavHostFragment;
 
 import android.Manifest;
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Environment;
 import android.provider.MediaStore;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -36,9 +36,12 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 import de.db.shoppinglist.R;
+import de.db.shoppinglist.database.ImageCompressorToJPEG;
 import de.db.shoppinglist.ifc.TakenImageSVM;
+import de.db.shoppinglist.utility.AppExecutors;
 import de.db.shoppinglist.viewmodel.TakenImageViewModel;
 
 
@@ -46,6 +49,8 @@ import de.db.shoppinglist.viewmodel.TakenImageViewModel;
  * This fragments provides two options to take an image: Using the camera or selecting an image
  * from gallery. Afterwards the image is displayed. If necessary the image also be removed.
  * The communication with corresponding fragment uses a shared viewmodel.
+ * Photos of the camera are written into the cache-directory of the app instead of the gallery,
+ * and are down-sized right after they were taken, see {@link ImageCompressorToJPEG#downsizeInPlace(File)}.
  */
 public class TakeImageFragment extends Fragment {
 
@@ -54,6 +59,11 @@ public class TakeImageFragment extends Fragment {
     public static final int GALLERY_REQUEST_CODE = 105;
     private static final String WAS_REPLACED = "";
     public static final String DONE_STATUS_KEY = "done-status";
+    private static final String TAG = "TakeImageFragment";
+    /** Name of the folder inside the cache-directory, containing the taken photos.*/
+    private static final String CAPTURE_FOLDER = "captured_images";
+    /** Photos are deleted after this time. Until then they're uploaded or discarded by the upload-queue.*/
+    private static final long MAX_CAPTURE_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
     private ImageView selectedImage;
     private Button cameraButton;
     private Button galleryButton;
@@ -164,9 +174,8 @@ public class TakeImageFragment extends Fragment {
     public void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         if(requestCode == CAMERA_REQUEST_CODE){
             if(resultCode == Activity.RESULT_OK && data !=  null){
-                Uri contentUri = addPicToGallery();
-                viewModel.setImage(contentUri);
-                done.setEnabled(true);
+                prepareCapture();
+                done.setEnabled(false);
                 removeButton.setVisibility(View.VISIBLE);
             }else{
                 done.setEnabled(false);
@@ -184,26 +193,47 @@ public class TakeImageFragment extends Fragment {
         }
     }
 
-    private Uri addPicToGallery() {
-        File f = new File(currentPhotoPath);
-        Intent mediaScanIntent = new Intent(Intent.ACTION_MEDIA_SCANNER_SCAN_FILE);
-        Uri contentUri = Uri.fromFile(f);
-        mediaScanIntent.setData(contentUri);
-        getActivity().sendBroadcast(mediaScanIntent);
-        return contentUri;
+    /**
+     * Down-sizes the photo in the background. The image is displayed afterwards, which enables the done-button.
+     */
+    private void prepareCapture() {
+        File capture = new File(currentPhotoPath);
+        Context context = requireContext().getApplicationContext();
+        AppExecutors.getInstance().imageProcessing().execute(() -> {
+            if (!new ImageCompressorToJPEG(context).downsizeInPlace(capture)) {
+                Log.d(TAG, "Could not downsize " + capture.getName());
+            }
+            viewModel.postImage(Uri.fromFile(capture));
+        });
     }
 
-
     private File createImageFile() throws IOException {
         String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
         String imageFileName = "JPEG_" + timeStamp + "_";
-        File storageDir = Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_PICTURES);
+        File storageDir = new File(requireContext().getCacheDir(), CAPTURE_FOLDER);
+        if (!storageDir.isDirectory() && !storageDir.mkdirs()) {
+            throw new IOException("Failed to create " + storageDir.getAbsolutePath());
+        }
+        deleteOldCaptures(storageDir);
         File image = File.createTempFile(imageFileName, ".jpg", storageDir);
         currentPhotoPath = image.getAbsolutePath();
         return image;
     }
 
 
+    private void deleteOldCaptures(File storageDir) {
+        File[] captures = storageDir.listFiles();
+        if (captures == null) {
+            return;
+        }
+        long expired = System.currentTimeMillis() - MAX_CAPTURE_AGE_MILLIS;
+        for (File capture : captures) {
+            if (capture.lastModified() < expired && !capture.delete()) {
+                Log.d(TAG, "Could not delete " + capture.getName());
+            }
+        }
+    }
+
     private void dispatchTakePictureIntent() {
         Intent takePictureIntent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
         if (takePictureIntent.resolveActivity(getActivity().getPackageManager()) != null) {
@@ -211,7 +241,7 @@ public class TakeImageFragment extends Fragment {
             try {
                 photoFile = createImageFile();
             } catch (IOException ex) {
-                Log.d("TakeImageFragment", ex.getMessage());
+                Log.d(TAG, ex.getMessage());
             }
             if (photoFile != null) {
                 Uri photoURI = FileProvider.getUriForFile(getContext(), "de.db.shoppinglist.file_provider", photoFile);
@@ -1,5 +1,7 @@
 package de.db.shoppinglist.viewmodel;
 
+import android.content.Context;
+
 import androidx.lifecycle.ViewModel;
 
 import de.db.shoppinglist.repository.ShoppingRepository;
@@ -15,11 +17,12 @@ public class LoginViewModel extends ViewModel {
      * Allows to sign-in.
      *
      * @param idToken          Token for identification.
+     * @param context          The application context.
      * @param postSignInAction Action, running after the signIn.
      *                         Typically used for navigation to different fragment.
      *                         Null is not allowed.
      */
-    public void signInWithCredential(String idToken, Runnable postSignInAction) {
-        repo.signInWithCredential(idToken, postSignInAction);
+    public void signInWithCredential(String idToken, Context context, Runnable postSignInAction) {
+        repo.signInWithCredential(idToken, context, postSignInAction);
     }
 }
@@ -39,11 +39,11 @@ public class ModifyEntryViewModel extends ViewModel {
     /**
      * Deletes an entry from a specific list.
      *
-     * @param listUid     Id of the list, containing this entry.
+     * @param list        The list, containing this entry.
      * @param documentUid Id of the entry, which should be deleted.
      */
-    public void deleteEntry(String listUid, String documentUid){
-        repo.deleteEntry(listUid, documentUid);
+    public void deleteEntry(ShoppingList list, String documentUid){
+        repo.deleteEntry(list, documentUid);
     }
 
     /**
@@ -54,7 +54,7 @@ public class ModifyEntryViewModel extends ViewModel {
      */
     public void toggleDoneStatus(ShoppingList list, ShoppingEntry entry) {
         entry.setDone(!entry.isDone());
-        repo.updateDoneStatus(list.getUid(), entry);
+        repo.updateDoneStatus(list, entry);
     }
 
     /**
@@ -42,16 +42,20 @@ public class NewEntryViewModel extends ViewModel {
      * @param nameOfProduct Name of the entry. Not null.
      * @param details Details of the entry. Null is allowed.
      * @param imageUri Uri of the image. Null is allowed.
+     * @param thumbnailUri Uri of the thumbnail, if the image was already uploaded. Null is allowed.
+     * @param imagePlaceholder BlurHash of the image, if the image was already uploaded. Null is allowed.
      * @param context Application context. Null is allowed if no image is null.
      */
-    public void addNewEntry(ShoppingList list, float quantity, String unitOfQuantity, String nameOfProduct, String details, Uri imageUri, Context context) {
+    public void addNewEntry(ShoppingList list, float quantity, String unitOfQuantity, String nameOfProduct, String details, Uri imageUri, String thumbnailUri, String imagePlaceholder, Context context) {
         int position = list.getNextFreePosition();
         String image = null;
         if(imageUri != null){
             image = imageUri.toString();
         }
         ShoppingEntry shoppingEntry = new ShoppingEntry(quantity, unitOfQuantity, nameOfProduct, details, position, image);
-        repo.addEntry(list.getUid(), shoppingEntry, context);
+        shoppingEntry.setThumbnailURI(thumbnailUri);
+        shoppingEntry.setImagePlaceholder(imagePlaceholder);
+        repo.addEntry(list, shoppingEntry, context);
     }
 
     public void reset(){
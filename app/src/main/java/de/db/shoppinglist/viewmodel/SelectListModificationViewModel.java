@@ -14,7 +14,7 @@ public class SelectListModificationViewModel extends ViewModel {
     private ShoppingRepository repo = ShoppingRepository.getInstance();
 
     public void deleteList(ShoppingList list) {
-        repo.deleteList(list.getUid());
+        repo.deleteList(list);
     }
 
     /**
@@ -1,7 +1,16 @@
 package de.db.shoppinglist.viewmodel;
 
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import java.util.Map;
+import java.util.Set;
+
+import de.db.shoppinglist.model.ShareMode;
+import de.db.shoppinglist.model.ShareResult;
 import de.db.shoppinglist.model.ShoppingList;
 import de.db.shoppinglist.repository.ShoppingRepository;
 /**
@@ -10,14 +19,25 @@ import de.db.shoppinglist.repository.ShoppingRepository;
 public class ShareListViewModel extends ViewModel {
 
     private ShoppingRepository repo = ShoppingRepository.getInstance();
+    private MutableLiveData<Map<String, ShareResult>> shareResults = new MutableLiveData<>();
+
+    /**
+     * Returns the outcome of the last sharing for every email. Null, while sharing is in progress.
+     */
+    public LiveData<Map<String, ShareResult>> getShareResults() {
+        return shareResults;
+    }
 
     /**
-     * Enables sharing of a single shopping-list.
+     * Enables sharing of a single shopping-list with several users at once.
      *
-     * @param list  List to share.
-     * @param email Email to identify the receiving party.
+     * @param list    List to share.
+     * @param emails  Emails to identify the receiving parties.
+     * @param mode    Whether the receiving parties get a copy or edit the list together.
+     * @param context The application context.
      */
-    public void share(ShoppingList list, String email) {
-        repo.share(list, email);
+    public void share(ShoppingList list, Set<String> emails, ShareMode mode, Context context) {
+        shareResults.setValue(null);
+        repo.share(list, emails, mode, context, shareResults::postValue);
     }
 }
@@ -1,5 +1,7 @@
 package de.db.shoppinglist.viewmodel;
 
+import android.content.Context;
+
 import androidx.lifecycle.ViewModel;
 
 import com.firebase.ui.firestore.FirestoreRecyclerOptions;
@@ -26,7 +28,7 @@ public class ShoppingListViewModel extends ViewModel {
             throw new IllegalArgumentException("Only items of type ShoppingEntry can be deleted.");
         }
         ShoppingEntry shoppingEntry = (ShoppingEntry) item;
-        repo.deleteEntry(list.getUid(), shoppingEntry.getUid());
+        repo.deleteEntry(list, shoppingEntry.getUid());
     }
 
     /**
@@ -37,7 +39,17 @@ public class ShoppingListViewModel extends ViewModel {
      * @return Returns the options, containing a query, which data should be displayed.
      */
     public FirestoreRecyclerOptions<ShoppingEntry> getRecylerViewOptions(ShoppingList list) {
-        return repo.getRecyclerViewOptions(list.getUid());
+        return repo.getRecyclerViewOptions(list);
+    }
+
+    /**
+     * Remembers, that a list was opened, so that its entries are loaded into the cache next time.
+     *
+     * @param list    The opened list.
+     * @param context The application context.
+     */
+    public void rememberOpenedList(ShoppingList list, Context context) {
+        repo.rememberOpenedList(list, context);
     }
 
     /**
@@ -59,17 +71,33 @@ public class ShoppingListViewModel extends ViewModel {
      */
     public void toggleDoneStatus(ShoppingList list, ShoppingEntry entry) {
         entry.setDone(!entry.isDone());
-        repo.updateDoneStatus(list.getUid(), entry);
+        repo.updateDoneStatus(list, entry);
+    }
+
+    /**
+     * Updates the done status of all entries to true (= done).
+     *
+     * @param list List containing the entries.
+     */
+    public void checkAll(ShoppingList list) {
+        repo.checkAllEntries(list);
+    }
+
+    /**
+     * Deletes all entries of a list.
+     *
+     * @param list List containing the entries.
+     */
+    public void deleteAllEntries(ShoppingList list) {
+        repo.deleteEntries(list, false);
     }
 
     /**
-     * Updates the done status to true (= done).
+     * Deletes all entries of a list, which are done.
      *
-     * @param list List containing the entry.
-     * @param entry  The entry, with the new done-status.
+     * @param list List containing the entries.
      */
-    public void setStatusToDone(ShoppingList list, ShoppingEntry entry) {
-        entry.setDone(true);
-        repo.updateDoneStatus(list.getUid(), entry);
+    public void deleteCheckedEntries(ShoppingList list) {
+        repo.deleteEntries(list, true);
     }
 }
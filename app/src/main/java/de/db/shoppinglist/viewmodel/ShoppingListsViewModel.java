@@ -20,7 +20,7 @@ public class ShoppingListsViewModel extends ViewModel {
      * @param list List, which is supposed to be deleted.
      */
     public void deleteList(ShoppingList list) {
-        repo.deleteList(list.getUid());
+        repo.deleteList(list);
     }
 
     /**
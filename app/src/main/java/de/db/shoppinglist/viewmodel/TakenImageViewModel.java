@@ -31,6 +31,15 @@ public class TakenImageViewModel extends ViewModel {
         imageLiveData.setValue(imageUri.toString());
     }
 
+    /**
+     * Sets the image from a background-thread, e.g. after a captured photo was prepared.
+     *
+     * @param imageUri Device-intern uri of the image.
+     */
+    public void postImage(Uri imageUri) {
+        imageLiveData.postValue(imageUri.toString());
+    }
+
     public void setImage(String imageUri) {
         if (imageUri != null && imageUri.isEmpty()) {
             imageLiveData.setValue(IS_EMPTY_IMAGE);
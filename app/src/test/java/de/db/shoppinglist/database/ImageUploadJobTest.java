@@ -0,0 +1,125 @@
+package de.db.shoppinglist.database;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.File;
+
+import static de.db.shoppinglist.database.ImageUploadJob.INITIAL_BACKOFF_MILLIS;
+import static de.db.shoppinglist.database.ImageUploadJob.MAX_BACKOFF_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests, that a job survives the conversion to and from json, and that its backoff is capped.
+ */
+public class ImageUploadJobTest {
+
+    private static final String ENTRY_PATH = "Users/user/Lists/list/Entries/entry";
+    private static final String SOURCE = "content://media/external/images/media/42";
+    private static final String IMAGE_PATH = "uploads/image";
+    private static final String THUMBNAIL_PATH = "uploads/thumbnail";
+    private static final String PLACEHOLDER = "L00000fQfQfQfQfQfQfQfQfQfQfQ";
+    private static final long NOW = 1_000_000L;
+
+    @Test
+    public void fromJson_toJson_keepsJob() throws JSONException {
+        ImageUploadJob job = new ImageUploadJob(ENTRY_PATH,
+                new ImageUploadJob.Rendition(IMAGE_PATH, SOURCE, new File("/cache/image.jpg")),
+                new ImageUploadJob.Rendition(THUMBNAIL_PATH, SOURCE, new File("/cache/thumbnail.jpg")),
+                PLACEHOLDER);
+        job.attemptFailed(NOW);
+        job.networkFailed(NOW);
+
+        ImageUploadJob restored = ImageUploadJob.fromJson(new JSONObject(job.toJson().toString()));
+
+        assertEquals(job.getId(), restored.getId());
+        assertEquals(ENTRY_PATH, restored.getEntryPath());
+        assertEquals(PLACEHOLDER, restored.getPlaceholder());
+        assertEquals(1, restored.getAttempts());
+        assertEquals(job.getNotBefore(), restored.getNotBefore());
+        assertEquals(job.getBackoff(), restored.getBackoff());
+        assertEquals(IMAGE_PATH, restored.getImage().getStoragePath());
+        assertEquals(SOURCE, restored.getImage().getSource());
+        assertEquals(new File("/cache/image.jpg"), restored.getImage().getFile());
+        assertFalse(restored.getImage().isUploaded());
+        assertTrue(restored.hasThumbnail());
+        assertEquals(THUMBNAIL_PATH, restored.getThumbnail().getStoragePath());
+        assertTrue(job.toJson().similar(restored.toJson()));
+    }
+
+    @Test
+    public void fromJson_toJson_keepsProgressOfRendition() throws JSONException {
+        JSONObject image = new ImageUploadJob.Rendition(IMAGE_PATH, SOURCE, null).toJson()
+                .put("session", "https://storage/session")
+                .put("downloadUrl", "https://storage/image");
+        JSONObject json = new ImageUploadJob(ENTRY_PATH, new ImageUploadJob.Rendition(IMAGE_PATH, SOURCE, null), null, null)
+                .toJson()
+                .put("image", image);
+
+        ImageUploadJob restored = ImageUploadJob.fromJson(json);
+
+        assertTrue(restored.getImage().isUploaded());
+        assertEquals("https://storage/image", restored.getImage().getDownloadUrl());
+        assertNull(restored.getImage().getFile());
+        assertFalse(restored.hasThumbnail());
+        assertNull(restored.getPlaceholder());
+        assertTrue(json.similar(restored.toJson()));
+    }
+
+    @Test
+    public void fromJson_withoutFailures_usesAttempts() throws JSONException {
+        JSONObject json = new ImageUploadJob(ENTRY_PATH, new ImageUploadJob.Rendition(IMAGE_PATH, SOURCE, null), null, null)
+                .toJson();
+        json.remove("failures");
+        json.put("attempts", 2);
+
+        ImageUploadJob restored = ImageUploadJob.fromJson(json);
+
+        assertEquals(2 * INITIAL_BACKOFF_MILLIS, restored.getBackoff());
+    }
+
+    @Test
+    public void getBackoff_doublesWithEveryFailure() {
+        ImageUploadJob job = newJob();
+        assertEquals(0, job.getBackoff());
+
+        job.attemptFailed(NOW);
+        assertEquals(INITIAL_BACKOFF_MILLIS, job.getBackoff());
+        assertEquals(NOW + INITIAL_BACKOFF_MILLIS, job.getNotBefore());
+
+        job.networkFailed(NOW);
+        assertEquals(2 * INITIAL_BACKOFF_MILLIS, job.getBackoff());
+        assertEquals(1, job.getAttempts());
+    }
+
+    @Test
+    public void getBackoff_manyFailures_isCapped() {
+        ImageUploadJob job = newJob();
+        for (int i = 0; i < 100; i++) {
+            job.networkFailed(NOW);
+            assertTrue(job.getBackoff() > 0);
+            assertTrue(job.getBackoff() <= MAX_BACKOFF_MILLIS);
+        }
+
+        assertEquals(MAX_BACKOFF_MILLIS, job.getBackoff());
+        assertEquals(0, job.getAttempts());
+    }
+
+    @Test
+    public void retryNow_allowsImmediateStart() {
+        ImageUploadJob job = newJob();
+        job.networkFailed(NOW);
+
+        job.retryNow();
+
+        assertEquals(0, job.getNotBefore());
+    }
+
+    private ImageUploadJob newJob() {
+        return new ImageUploadJob(ENTRY_PATH, new ImageUploadJob.Rendition(IMAGE_PATH, SOURCE, null), null, null);
+    }
+}
@@ -0,0 +1,47 @@
+package de.db.shoppinglist.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests, that all spellings of the same email-address are normalized equally.
+ */
+public class RecipientLookupTest {
+
+    @Test
+    public void normalize_upperCaseAndWhitespace_areRemoved() {
+        assertEquals("john@example.org", RecipientLookup.normalize("  John@Example.ORG "));
+    }
+
+    @Test
+    public void normalize_googlemail_becomesGmail() {
+        assertEquals("john@gmail.com", RecipientLookup.normalize("john@googlemail.com"));
+    }
+
+    @Test
+    public void normalize_dotsOfGmail_areRemoved() {
+        assertEquals("johndoe@gmail.com", RecipientLookup.normalize("john.d.o.e@gmail.com"));
+    }
+
+    @Test
+    public void normalize_plusOfGmail_isRemoved() {
+        assertEquals("johndoe@gmail.com", RecipientLookup.normalize("john.doe+shopping@gmail.com"));
+    }
+
+    @Test
+    public void normalize_allSpellingsOfGmail_areEqual() {
+        assertEquals(RecipientLookup.normalize("johndoe@gmail.com"),
+                RecipientLookup.normalize(" John.Doe+Lists@GoogleMail.com"));
+    }
+
+    @Test
+    public void normalize_dotsAndPlusOfOtherDomains_areKept() {
+        assertEquals("john.doe+shopping@example.org", RecipientLookup.normalize("john.doe+shopping@example.org"));
+    }
+
+    @Test
+    public void normalize_withoutDomain_isOnlyLowerCased() {
+        assertEquals("john.doe", RecipientLookup.normalize("John.Doe"));
+    }
+}
@@ -0,0 +1,81 @@
+package de.db.shoppinglist.utility;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the encoding and decoding of BlurHashes on plain pixels, so that no bitmap is needed.
+ */
+public class BlurHashTest {
+
+    /** BlurHash of a black image with 4x3 components, as created by the reference implementation.*/
+    private static final String BLACK_HASH = "L00000fQfQfQfQfQfQfQfQfQfQfQ";
+    private static final int SIZE = 32;
+    private static final int BLACK = 0xFF000000;
+    private static final int RED = 0xFFFF0000;
+    private static final int TOLERANCE = 24;
+
+    @Test
+    public void encode_blackImage_matchesReference() {
+        assertEquals(BLACK_HASH, BlurHash.encode(fill(BLACK), SIZE, SIZE, 4, 3));
+    }
+
+    @Test
+    public void decode_reference_isBlack() {
+        int[] pixels = BlurHash.decodeToPixels(BLACK_HASH, SIZE, SIZE);
+
+        assertArrayEquals(fill(BLACK), pixels);
+    }
+
+    @Test
+    public void decode_encodedImage_keepsColor() {
+        String hash = BlurHash.encode(fill(RED), SIZE, SIZE, 4, 3);
+
+        int[] pixels = BlurHash.decodeToPixels(hash, SIZE, SIZE);
+
+        assertNotNull(pixels);
+        for (int pixel : pixels) {
+            assertTrue(Math.abs(((pixel >> 16) & 255) - 255) <= TOLERANCE);
+            assertTrue(((pixel >> 8) & 255) <= TOLERANCE);
+            assertTrue((pixel & 255) <= TOLERANCE);
+        }
+    }
+
+    @Test
+    public void decode_null_isRejected() {
+        assertNull(BlurHash.decodeToPixels(null, SIZE, SIZE));
+    }
+
+    @Test
+    public void decode_tooShort_isRejected() {
+        assertNull(BlurHash.decodeToPixels("L0000", SIZE, SIZE));
+    }
+
+    @Test
+    public void decode_lengthNotMatchingComponents_isRejected() {
+        assertNull(BlurHash.decodeToPixels(BLACK_HASH.substring(0, BLACK_HASH.length() - 2), SIZE, SIZE));
+    }
+
+    @Test
+    public void decode_invalidCharacter_isRejected() {
+        assertNull(BlurHash.decodeToPixels(BLACK_HASH.replace('Q', '"'), SIZE, SIZE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_tooManyComponents_isRejected() {
+        BlurHash.encode(fill(BLACK), SIZE, SIZE, 10, 3);
+    }
+
+    private int[] fill(int color) {
+        int[] pixels = new int[SIZE * SIZE];
+        Arrays.fill(pixels, color);
+        return pixels;
+    }
+}